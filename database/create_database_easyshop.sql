@@ -92,6 +92,47 @@ CREATE TABLE shopping_cart (
     FOREIGN KEY (product_id) REFERENCES products(product_id)
 );
 
+-- stock of hot products split into shards (see MySqlStockShards); no rows for a product in normal mode
+CREATE TABLE product_stock_shards (
+    product_id INT NOT NULL,
+    shard INT NOT NULL,
+    stock INT NOT NULL,
+    allocated INT NOT NULL,
+    PRIMARY KEY (product_id, shard),
+    FOREIGN KEY (product_id) REFERENCES products(product_id)
+);
+
+-- revenue and units per product and day, kept up to date from order_line_items (see MySqlSalesRollupDao)
+CREATE TABLE sales_daily_products (
+    day DATE NOT NULL,
+    product_id INT NOT NULL,
+    units INT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    line_items INT NOT NULL,
+    PRIMARY KEY (product_id, day),
+    KEY (day)
+);
+
+-- the same per category (the product's category when its line item was rolled up)
+CREATE TABLE sales_daily_categories (
+    day DATE NOT NULL,
+    category_id INT NOT NULL,
+    units INT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    line_items INT NOT NULL,
+    PRIMARY KEY (category_id, day),
+    KEY (day)
+);
+
+-- the last order_line_item_id included in the rollups (one row)
+CREATE TABLE sales_rollup_watermark (
+    id INT NOT NULL,
+    last_line_item_id INT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO sales_rollup_watermark (id, last_line_item_id) VALUES (1, 0);
+
 
 /*  INSERT Users  */
 INSERT INTO users (username, hashed_password, role) 
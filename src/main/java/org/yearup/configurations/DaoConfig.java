@@ -0,0 +1,152 @@
+package org.yearup.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.UserDao;
+import org.yearup.data.cache.CachingCategoryDao;
+import org.yearup.data.cache.CachingProductDao;
+import org.yearup.data.cache.CachingUserDao;
+import org.yearup.data.cache.CoalescingProductDao;
+import org.yearup.data.cache.LruTtlCache;
+import org.yearup.data.cache.SingleFlight;
+import org.yearup.data.cache.WriteBehindShoppingCartDao;
+import org.yearup.data.index.IndexedProductDao;
+import org.yearup.data.index.ProductCatalogIndex;
+import org.yearup.data.index.ProductSuggestIndex;
+import org.yearup.data.index.ProductTextIndex;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.data.mysql.MySqlUserDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Category;
+import org.yearup.models.Product;
+import org.yearup.models.User;
+
+import java.util.List;
+
+@Configuration
+public class DaoConfig
+{
+    private final MetricsRegistry metricsRegistry;
+
+    public DaoConfig(MetricsRegistry metricsRegistry)
+    {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    // The ProductDao the controllers see. Optional layers are stacked on top of the MySQL implementation here.
+    @Bean
+    @Primary
+    public ProductDao productDao(MySqlProductDao mySqlProductDao,
+                                 @Value("${catalog.index.enabled:false}") boolean catalogIndexEnabled,
+                                 @Value("${search.text-index.enabled:true}") boolean textIndexEnabled,
+                                 @Value("${search.suggest-index.enabled:true}") boolean suggestIndexEnabled,
+                                 @Value("${dao.coalescing.enabled:true}") boolean coalescingEnabled,
+                                 @Value("${cache.products.enabled:true}") boolean cacheEnabled,
+                                 @Value("${cache.products.max-size:10000}") int cacheMaxSize,
+                                 @Value("${cache.products.ttl-seconds:300}") long cacheTtlSeconds,
+                                 @Value("${cache.products.negative-ttl-seconds:30}") long cacheNegativeTtlSeconds)
+    {
+        ProductDao productDao = mySqlProductDao;
+
+        if (coalescingEnabled)
+        {
+            SingleFlight<List<Object>, Object> flights = new SingleFlight<>();
+            metricsRegistry.register("productReadCoalescing", flights::stats);
+            productDao = new CoalescingProductDao(productDao, flights);
+        }
+
+        if (catalogIndexEnabled || textIndexEnabled || suggestIndexEnabled)
+        {
+            IndexedProductDao indexedProductDao = new IndexedProductDao(productDao,
+                    catalogIndexEnabled ? new ProductCatalogIndex() : null,
+                    textIndexEnabled ? new ProductTextIndex() : null,
+                    suggestIndexEnabled ? new ProductSuggestIndex() : null);
+            // Spring only initializes the object this method returns, and the cache below may wrap this one
+            indexedProductDao.afterPropertiesSet();
+            productDao = indexedProductDao;
+        }
+
+        if (cacheEnabled)
+        {
+            LruTtlCache<Integer, Product> cache = new LruTtlCache<>(cacheMaxSize,
+                    cacheTtlSeconds * 1000, cacheNegativeTtlSeconds * 1000);
+            metricsRegistry.register("productCache", cache::stats);
+            productDao = new CachingProductDao(productDao, cache);
+        }
+
+        return productDao;
+    }
+
+    // The CategoryDao the controllers see: the MySQL implementation behind a read-through cache
+    @Bean
+    @Primary
+    public CategoryDao categoryDao(MySqlCategoryDao mySqlCategoryDao,
+                                   @Value("${cache.categories.enabled:true}") boolean cacheEnabled,
+                                   @Value("${cache.categories.max-size:1000}") int cacheMaxSize,
+                                   @Value("${cache.categories.ttl-seconds:3600}") long cacheTtlSeconds,
+                                   @Value("${cache.categories.negative-ttl-seconds:30}") long cacheNegativeTtlSeconds)
+    {
+        if (!cacheEnabled)
+        {
+            return mySqlCategoryDao;
+        }
+
+        LruTtlCache<Integer, Category> byIdCache = new LruTtlCache<>(cacheMaxSize,
+                cacheTtlSeconds * 1000, cacheNegativeTtlSeconds * 1000);
+        LruTtlCache<String, List<Category>> listCache = new LruTtlCache<>(1, cacheTtlSeconds * 1000, 0);
+        metricsRegistry.register("categoryCache", byIdCache::stats);
+        metricsRegistry.register("categoryListCache", listCache::stats);
+
+        return new CachingCategoryDao(mySqlCategoryDao, byIdCache, listCache);
+    }
+
+    // The UserDao for login and registration: lookups by username go through a short-lived cache
+    @Bean
+    @Primary
+    public UserDao userDao(MySqlUserDao mySqlUserDao,
+                           @Value("${cache.users.enabled:true}") boolean cacheEnabled,
+                           @Value("${cache.users.max-size:10000}") int cacheMaxSize,
+                           @Value("${cache.users.ttl-seconds:60}") long cacheTtlSeconds,
+                           @Value("${cache.users.negative-ttl-seconds:10}") long cacheNegativeTtlSeconds)
+    {
+        if (!cacheEnabled)
+        {
+            return mySqlUserDao;
+        }
+
+        LruTtlCache<String, User> cache = new LruTtlCache<>(cacheMaxSize,
+                cacheTtlSeconds * 1000, cacheNegativeTtlSeconds * 1000);
+        metricsRegistry.register("userCache", cache::stats);
+
+        return new CachingUserDao(mySqlUserDao, cache);
+    }
+
+    // The ShoppingCartDao for /cart. With write-behind on, carts are changed in memory and written in batches
+    // (see WriteBehindShoppingCartDao for what a crash can lose); otherwise every change is written directly.
+    @Bean
+    @Primary
+    public ShoppingCartDao shoppingCartDao(MySqlShoppingCartDao mySqlShoppingCartDao, ProductDao productDao,
+                                           @Value("${cart.write-behind.enabled:false}") boolean writeBehindEnabled,
+                                           @Value("${cart.write-behind.flush-interval-millis:1000}") long flushIntervalMillis,
+                                           @Value("${cart.write-behind.max-dirty:500}") int maxDirty,
+                                           @Value("${cart.write-behind.idle-seconds:900}") long idleSeconds)
+    {
+        if (!writeBehindEnabled)
+        {
+            return mySqlShoppingCartDao;
+        }
+
+        WriteBehindShoppingCartDao cartDao = new WriteBehindShoppingCartDao(mySqlShoppingCartDao, productDao,
+                flushIntervalMillis, maxDirty, idleSeconds * 1000);
+        metricsRegistry.register("cartWriteBehind", cartDao::stats);
+
+        return cartDao;
+    }
+}
@@ -0,0 +1,30 @@
+package org.yearup.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.security.BoundedPasswordEncoder;
+
+@Configuration
+public class PasswordConfig
+{
+    // BCrypt for login (DaoAuthenticationProvider) and register (MySqlUserDao), run on a bounded pool of its own
+    // threads = 0 uses half the available cores, so catalog requests always keep some CPU
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MetricsRegistry metricsRegistry,
+                                           @Value("${security.password-hashing.threads:0}") int threads,
+                                           @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${security.password-hashing.timeout-millis:5000}") long timeoutMillis)
+    {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(),
+                poolSize, queueCapacity, timeoutMillis);
+        metricsRegistry.register("passwordHashing", encoder::stats);
+
+        return encoder;
+    }
+}
@@ -0,0 +1,52 @@
+package org.yearup.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer
+{
+    private static final String LONG_STREAM = WebConfig.class.getName() + ".LONG_STREAM";
+
+    private final long streamTimeoutMillis;
+
+    public WebConfig(@Value("${exports.stream-timeout-millis:600000}") long streamTimeoutMillis)
+    {
+        this.streamTimeoutMillis = streamTimeoutMillis;
+    }
+
+    // Called by the export streamers while the request is still on its servlet thread: this response may outlive
+    // spring.mvc.async.request-timeout, every other async response keeps the default.
+    public static void allowLongStream()
+    {
+        RequestContextHolder.currentRequestAttributes()
+                            .setAttribute(LONG_STREAM, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+    {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor()
+        {
+            // runs before the async request starts, which is when its timeout is applied
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task)
+            {
+                if (request instanceof AsyncWebRequest asyncRequest
+                        && request.getAttribute(LONG_STREAM, RequestAttributes.SCOPE_REQUEST) != null)
+                {
+                    asyncRequest.setTimeout(streamTimeoutMillis);
+                }
+            }
+        });
+    }
+}
@@ -2,12 +2,19 @@ package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
 import org.yearup.models.Category;
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
 
 import java.util.List;
 
@@ -18,22 +25,29 @@ public class CategoriesController
 {
     private final CategoryDao categoryDao;
     private final ProductDao productDao;
+    private final ProductJsonStreamer productJsonStreamer;
 
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao)
+    public CategoriesController(CategoryDao categoryDao, ProductDao productDao, ProductJsonStreamer productJsonStreamer)
     {
         this.categoryDao = categoryDao;
         this.productDao = productDao;
+        this.productJsonStreamer = productJsonStreamer;
     }
 
 
     // GET /categories
-    // Returns all categories (public)
+    // Returns all categories (public); reads carry an ETag and a matching If-None-Match gets a 304
 
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Category> getAll()
+    public List<Category> getAll(WebRequest webRequest)
     {
+        if (notModified(webRequest, "categories", categoryDao.version()))
+        {
+            return null;
+        }
+
         return categoryDao.getAllCategories();
     }
 
@@ -43,8 +57,13 @@ public class CategoriesController
 
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")
-    public Category getById(@PathVariable int id)
+    public Category getById(@PathVariable int id, WebRequest webRequest)
     {
+        if (notModified(webRequest, "category-" + id, categoryDao.version(id)))
+        {
+            return null;
+        }
+
         Category category = categoryDao.getById(id);
 
         if (category == null)
@@ -61,12 +80,61 @@ public class CategoriesController
 
     @GetMapping("/{categoryId}/products")
     @PreAuthorize("permitAll()")
-    public List<Product> getProductsByCategory(@PathVariable int categoryId)
+    public List<Product> getProductsByCategory(@PathVariable int categoryId, WebRequest webRequest)
     {
+        if (notModified(webRequest, "products", productDao.version()))
+        {
+            return null;
+        }
+
         return productDao.listByCategoryId(categoryId);
     }
 
 
+    // GET /categories/{categoryId}/products?limit=50&sort=name&after={cursor}
+    // Pages through a category instead of returning every product at once
+
+    @GetMapping(value = "/{categoryId}/products", params = "limit")
+    @PreAuthorize("permitAll()")
+    public ProductPage getProductPageByCategory(@PathVariable int categoryId,
+                                                @RequestParam(name = "sort", required = false) String sort,
+                                                @RequestParam(name = "after", required = false) String after,
+                                                @RequestParam(name = "limit") int limit,
+                                                WebRequest webRequest)
+    {
+        if (notModified(webRequest, "products", productDao.version()))
+        {
+            return null;
+        }
+
+        ProductSearch search = new ProductSearch(categoryId, null, null, null);
+
+        try
+        {
+            search.setPaging(sort, after, limit);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        return productDao.searchPage(search);
+    }
+
+
+    // GET /categories/{categoryId}/products?stream=true
+    // ADMIN ONLY — Full category export, streamed from the database cursor at constant memory
+    // (holds a pooled connection until the client has read everything)
+
+    @GetMapping(value = "/{categoryId}/products", params = "stream=true")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamProductsByCategory(@PathVariable int categoryId)
+    {
+        return productJsonStreamer.stream(consumer ->
+                productDao.streamSearch(categoryId, null, null, null, consumer));
+    }
+
+
     // POST /categories
     // ADMIN ONLY — Create a new category
 
@@ -118,5 +186,12 @@ public class CategoriesController
 
         categoryDao.delete(id);
     }
-}
 
+
+    // true when the client's copy is current; the response is then already a 304 and no DAO read is needed
+    private static boolean notModified(WebRequest webRequest, String resource, long version)
+    {
+        String etag = VersionStamps.etag(resource, version);
+        return etag != null && webRequest.checkNotModified(etag);
+    }
+}
@@ -0,0 +1,33 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.yearup.metrics.MetricsRegistry;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/metrics")
+@CrossOrigin
+public class MetricsController
+{
+    private final MetricsRegistry metricsRegistry;
+
+    @Autowired
+    public MetricsController(MetricsRegistry metricsRegistry)
+    {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+
+    // GET /metrics
+    // ADMIN ONLY — Cache and other in-process counters, grouped by source
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Map<String, Long>> getAll()
+    {
+        return metricsRegistry.snapshot();
+    }
+}
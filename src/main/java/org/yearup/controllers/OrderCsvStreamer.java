@@ -0,0 +1,118 @@
+package org.yearup.controllers;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.configurations.WebConfig;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/*
+    Writes order line items to the HTTP response as CSV (one row per line item, with its order's columns repeated)
+    while the DAO is still reading them, so an export of every order needs the same memory as an export of one.
+ */
+@Component
+public class OrderCsvStreamer
+{
+    static final String HEADER = "order_id,user_id,date,address,city,state,zip,shipping_amount,"
+            + "order_line_item_id,product_id,sales_price,quantity,discount";
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    public ResponseEntity<StreamingResponseBody> stream(String filename,
+                                                        Consumer<BiConsumer<Order, OrderLineItem>> source)
+    {
+        WebConfig.allowLongStream();
+
+        StreamingResponseBody body = outputStream -> {
+            // the buffer decides when bytes go to the socket; never one write per row
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)))
+            {
+                writer.write(HEADER);
+                writer.write("\r\n");
+                source.accept((order, item) -> {
+                    try
+                    {
+                        writeRow(writer, order, item);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                             .contentType(TEXT_CSV)
+                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                             .body(body);
+    }
+
+    static void writeRow(Writer writer, Order order, OrderLineItem item) throws IOException
+    {
+        writer.write(String.valueOf(order.getOrderId()));
+        writer.write(',');
+        writer.write(String.valueOf(order.getUserId()));
+        writer.write(',');
+        writer.write(order.getDate().toString());
+        writer.write(',');
+        writeText(writer, order.getAddress());
+        writer.write(',');
+        writeText(writer, order.getCity());
+        writer.write(',');
+        writeText(writer, order.getState());
+        writer.write(',');
+        writeText(writer, order.getZip());
+        writer.write(',');
+        writer.write(order.getShippingAmount().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(item.getOrderLineItemId()));
+        writer.write(',');
+        writer.write(String.valueOf(item.getProductId()));
+        writer.write(',');
+        writer.write(item.getSalesPrice().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(item.getQuantity()));
+        writer.write(',');
+        writer.write(item.getDiscount().toPlainString());
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote fields holding a comma, quote or line break, and double the quotes inside them
+    private static void writeText(Writer writer, String value) throws IOException
+    {
+        if (value == null)
+        {
+            return;
+        }
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++)
+        {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+
+        if (!quote)
+        {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,301 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CheckoutResult;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Queued checkout for flash sales (orders.queue.enabled). POST /orders only puts the user on a bounded queue and
+    answers 202; a fixed number of writer threads take up to group-size checkouts at a time and write them with
+    OrderDao.checkoutAll (one transaction and one commit per group). So at most `workers` connections are ever
+    used for checkout, however many buyers arrive, and a full queue is answered with 503 right away.
+
+    A 202 is a promise to try, not an order: if the process dies first, the queued checkouts are lost, but their
+    carts are untouched, so the buyer can simply check out again. Statuses are kept in memory for
+    status-retention-seconds after they finish.
+ */
+@Component
+public class OrderIntakeQueue implements InitializingBean, DisposableBean
+{
+    private final OrderDao orderDao;
+    private final ShoppingCartDao shoppingCartDao;
+    private final ProductDao productDao;
+    private final boolean enabled;
+    private final int workers;
+    private final int groupSize;
+    private final long retentionMillis;
+
+    private final BlockingQueue<OrderStatus> queue;
+    private final Map<String, OrderStatus> statuses = new ConcurrentHashMap<>();
+    // at most one unfinished checkout per user, so a double submit gets the same ticket
+    private final Map<Integer, OrderStatus> pendingByUser = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong queueFull = new AtomicLong();
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong groupFallbacks = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public OrderIntakeQueue(OrderDao orderDao, ShoppingCartDao shoppingCartDao, ProductDao productDao,
+                            MetricsRegistry metricsRegistry,
+                            @Value("${orders.queue.enabled:false}") boolean enabled,
+                            @Value("${orders.queue.capacity:1000}") int capacity,
+                            @Value("${orders.queue.workers:2}") int workers,
+                            @Value("${orders.queue.group-size:20}") int groupSize,
+                            @Value("${orders.queue.status-retention-seconds:600}") long retentionSeconds)
+    {
+        this.orderDao = orderDao;
+        this.shoppingCartDao = shoppingCartDao;
+        this.productDao = productDao;
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.groupSize = Math.max(1, groupSize);
+        this.retentionMillis = retentionSeconds * 1000;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+
+        if (enabled)
+        {
+            metricsRegistry.register("orderIntake", this::stats);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        running = true;
+        for (int i = 1; i <= workers; i++)
+        {
+            Thread thread = new Thread(this::drain, "order-writer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    // stops taking new checkouts and lets the writers finish what is queued
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        running = false;
+        for (Thread thread : threads)
+        {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    // INTAKE
+
+    // the user's ticket (a new one, or the unfinished one they already have); null when the queue is full
+    public OrderStatus submit(int userId)
+    {
+        if (!running)
+        {
+            return null;
+        }
+
+        OrderStatus ticket = new OrderStatus(UUID.randomUUID().toString(), userId, System.currentTimeMillis());
+        OrderStatus pending = pendingByUser.putIfAbsent(userId, ticket);
+        if (pending != null)
+        {
+            return pending;
+        }
+
+        statuses.put(ticket.getId(), ticket);
+        if (!queue.offer(ticket))
+        {
+            statuses.remove(ticket.getId());
+            pendingByUser.remove(userId, ticket);
+            queueFull.incrementAndGet();
+            return null;
+        }
+
+        accepted.incrementAndGet();
+        return ticket;
+    }
+
+    public OrderStatus status(String id)
+    {
+        return statuses.get(id);
+    }
+
+
+    // WRITERS
+
+    private void drain()
+    {
+        List<OrderStatus> group = new ArrayList<>(groupSize);
+
+        while (running || !queue.isEmpty())
+        {
+            try
+            {
+                OrderStatus first = queue.poll(1, TimeUnit.SECONDS);
+                forgetFinished();
+                if (first == null)
+                {
+                    continue;
+                }
+
+                group.add(first);
+                queue.drainTo(group, groupSize - 1);
+                write(group);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                // write() settles every ticket itself; this only keeps the writer alive
+            }
+            finally
+            {
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<OrderStatus> group)
+    {
+        List<Integer> userIds = new ArrayList<>(group.size());
+        for (OrderStatus ticket : group)
+        {
+            ticket.processing();
+            userIds.add(ticket.getUserId());
+        }
+
+        List<CheckoutResult> results;
+        try
+        {
+            // checkout reads the cart table, so changes still held in memory must be there first
+            for (Integer userId : userIds)
+            {
+                shoppingCartDao.flush(userId);
+            }
+            results = orderDao.checkoutAll(userIds);
+            groups.incrementAndGet();
+        }
+        catch (RuntimeException e)
+        {
+            // e.g. a deadlock between two groups: the group was rolled back, so each order gets its own transaction
+            groupFallbacks.incrementAndGet();
+            results = new ArrayList<>(group.size());
+            for (Integer userId : userIds)
+            {
+                results.add(checkoutAlone(userId));
+            }
+        }
+
+        List<Integer> productIds = new ArrayList<>();
+        for (int i = 0; i < group.size(); i++)
+        {
+            OrderStatus ticket = group.get(i);
+            CheckoutResult result = results.get(i);
+            Order order = result.getOrder();
+
+            if (order != null)
+            {
+                shoppingCartDao.evict(ticket.getUserId());
+                for (OrderLineItem item : order.getLineItems())
+                {
+                    productIds.add(item.getProductId());
+                }
+                created.incrementAndGet();
+                ticket.finish(OrderStatus.CREATED, order.getOrderId(), null);
+            }
+            else if (result.getError() instanceof InsufficientStockException
+                    || result.getError() instanceof IllegalStateException)
+            {
+                rejected.incrementAndGet();
+                ticket.finish(OrderStatus.REJECTED, null, result.getError().getMessage());
+            }
+            else
+            {
+                failed.incrementAndGet();
+                ticket.finish(OrderStatus.FAILED, null, "The order could not be saved, please try again.");
+            }
+            pendingByUser.remove(ticket.getUserId(), ticket);
+        }
+
+        // stock changed outside ProductDao; cached products, indexes and ETags catch up once per group
+        if (!productIds.isEmpty())
+        {
+            productDao.refresh(productIds);
+        }
+    }
+
+    private CheckoutResult checkoutAlone(int userId)
+    {
+        try
+        {
+            shoppingCartDao.flush(userId);
+            Order order = orderDao.checkout(userId);
+            return order == null
+                    ? CheckoutResult.failed(new IllegalStateException("The cart is empty."))
+                    : CheckoutResult.created(order);
+        }
+        catch (RuntimeException e)
+        {
+            return CheckoutResult.failed(e);
+        }
+    }
+
+    private void forgetFinished()
+    {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        statuses.values().removeIf(ticket -> ticket.isFinished() && ticket.getFinishedAt() < cutoff);
+    }
+
+    private Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", (long) queue.size());
+        stats.put("queueRemaining", (long) queue.remainingCapacity());
+        stats.put("accepted", accepted.get());
+        stats.put("queueFull", queueFull.get());
+        stats.put("groups", groups.get());
+        stats.put("groupFallbacks", groupFallbacks.get());
+        stats.put("created", created.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failed", failed.get());
+        stats.put("statuses", (long) statuses.size());
+        return stats;
+    }
+}
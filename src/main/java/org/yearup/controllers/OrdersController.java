@@ -0,0 +1,198 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderPage;
+import org.yearup.models.OrderStatus;
+import org.yearup.security.AuthenticatedUser;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/orders")
+@CrossOrigin
+@PreAuthorize("isAuthenticated()")
+public class OrdersController
+{
+    private final OrderDao orderDao;
+    private final ShoppingCartDao shoppingCartDao;
+    private final ProductDao productDao;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final OrderCsvStreamer orderCsvStreamer;
+    private final int retryAfterSeconds;
+
+    @Autowired
+    public OrdersController(OrderDao orderDao, ShoppingCartDao shoppingCartDao, ProductDao productDao,
+                            OrderIntakeQueue orderIntakeQueue, OrderCsvStreamer orderCsvStreamer,
+                            @Value("${orders.queue.retry-after-seconds:1}") int retryAfterSeconds)
+    {
+        this.orderDao = orderDao;
+        this.shoppingCartDao = shoppingCartDao;
+        this.productDao = productDao;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.orderCsvStreamer = orderCsvStreamer;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+
+    // GET /orders?limit=20&after={nextCursor}
+    // The current user's orders with their line items, newest first, one keyset page at a time.
+    // Admins (support) can pass userId= to read another customer's history
+
+    @GetMapping
+    public OrderPage getOrders(@AuthenticationPrincipal AuthenticatedUser user,
+                               @RequestParam(name = "userId", required = false) Integer userId,
+                               @RequestParam(name = "after", required = false) Integer after,
+                               @RequestParam(name = "limit", defaultValue = "" + OrderPage.DEFAULT_LIMIT) int limit)
+    {
+        int ownerId = userId(user);
+        if (userId != null && userId != ownerId)
+        {
+            if (!isAdmin(user))
+            {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            }
+            ownerId = userId;
+        }
+
+        if (limit < 1 || limit > OrderPage.MAX_LIMIT)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + OrderPage.MAX_LIMIT + ".");
+        }
+
+        return orderDao.getPage(ownerId, after, limit);
+    }
+
+
+    // GET /orders/export
+    // Every order line item (or one customer's with userId=) as CSV, streamed straight from the database cursor
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "userId", required = false) Integer userId)
+    {
+        String filename = userId == null ? "orders.csv" : "orders-user-" + userId + ".csv";
+        return orderCsvStreamer.stream(filename, row -> orderDao.streamLineItems(userId, row));
+    }
+
+
+    // POST /orders
+    // Check out the current user's cart: one transaction creates the order and its line items, takes the stock
+    // (409 if any product has too little left, and then nothing changes) and empties the cart.
+    // With orders.queue.enabled the checkout is queued instead: 202 with the status URL, or 503 when the queue is full
+
+    @PostMapping
+    public ResponseEntity<Object> checkout(@AuthenticationPrincipal AuthenticatedUser user)
+    {
+        int userId = userId(user);
+
+        if (orderIntakeQueue.isEnabled())
+        {
+            return enqueue(userId);
+        }
+
+        // checkout reads the cart table, so changes still held in memory must be there first
+        shoppingCartDao.flush(userId);
+
+        Order order;
+        try
+        {
+            order = orderDao.checkout(userId);
+        }
+        catch (InsufficientStockException e)
+        {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        catch (IllegalStateException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        if (order == null)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cart is empty.");
+        }
+
+        shoppingCartDao.evict(userId);
+
+        // stock changed outside ProductDao; cached products, indexes and ETags catch up here
+        List<Integer> productIds = new ArrayList<>(order.getLineItems().size());
+        for (OrderLineItem item : order.getLineItems())
+        {
+            productIds.add(item.getProductId());
+        }
+        productDao.refresh(productIds);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+    }
+
+    private ResponseEntity<Object> enqueue(int userId)
+    {
+        if (shoppingCartDao.getByUserId(userId).getItems().isEmpty())
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cart is empty.");
+        }
+
+        OrderStatus status = orderIntakeQueue.submit(userId);
+        if (status == null)
+        {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body("Too many orders in progress, try again shortly.");
+        }
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/orders/" + status.getId() + "/status"))
+                .body(status);
+    }
+
+
+    // GET /orders/{id}/status
+    // Progress of a queued checkout (only for the user who placed it)
+
+    @GetMapping("/{id}/status")
+    public OrderStatus getStatus(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable String id)
+    {
+        OrderStatus status = orderIntakeQueue.status(id);
+
+        if (status == null || status.getUserId() != userId(user))
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Order status not found.");
+        }
+
+        return status;
+    }
+
+
+    private static boolean isAdmin(AuthenticatedUser user)
+    {
+        return user.getAuthorities().stream().anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    // tokens issued before the user id claim existed carry no AuthenticatedUser
+    private static int userId(AuthenticatedUser user)
+    {
+        if (user == null)
+        {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Please log in again.");
+        }
+        return user.getUserId();
+    }
+}
@@ -0,0 +1,356 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Category;
+import org.yearup.models.Product;
+import org.yearup.models.ProductImportReport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Bulk product import (POST /products/import). Rows are parsed one at a time from the request body and
+    written in chunks of import.chunk-size through ProductDao.createBatch, so neither the file nor the
+    parsed products are ever held in memory whole. A bad row is reported and skipped; it never aborts the job.
+ */
+@Component
+public class ProductImporter
+{
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private final ProductDao productDao;
+    private final CategoryDao categoryDao;
+    private final ObjectReader productReader;
+    private final int chunkSize;
+
+    public ProductImporter(ProductDao productDao, CategoryDao categoryDao, ObjectMapper objectMapper,
+                           @Value("${import.chunk-size:1000}") int chunkSize)
+    {
+        this.productDao = productDao;
+        this.categoryDao = categoryDao;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public ProductImportReport importNdjson(Reader body) throws IOException
+    {
+        return run(new NdjsonRows(new BufferedReader(body)));
+    }
+
+    public ProductImportReport importCsv(Reader body) throws IOException
+    {
+        return run(new CsvRows(new BufferedReader(body)));
+    }
+
+    private ProductImportReport run(RowReader rows) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        ProductImportReport report = new ProductImportReport();
+
+        // the category list comes from the category cache, so this is usually free
+        Set<Integer> categoryIds = new HashSet<>();
+        for (Category category : categoryDao.getAllCategories())
+        {
+            categoryIds.add(category.getCategoryId());
+        }
+
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkRows = new ArrayList<>(chunkSize);
+
+        while (true)
+        {
+            Product product;
+            try
+            {
+                product = rows.next();
+                if (product == null)
+                {
+                    break;
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                report.rowRead();
+                report.addError(rows.rowNumber(), e.getMessage());
+                continue;
+            }
+
+            report.rowRead();
+            String problem = validate(product, categoryIds);
+            if (problem != null)
+            {
+                report.addError(rows.rowNumber(), problem);
+                continue;
+            }
+
+            product.setProductId(0);
+            chunk.add(product);
+            chunkRows.add(rows.rowNumber());
+
+            if (chunk.size() == chunkSize)
+            {
+                write(chunk, chunkRows, report);
+            }
+        }
+        write(chunk, chunkRows, report);
+
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private void write(List<Product> chunk, List<Integer> chunkRows, ProductImportReport report)
+    {
+        if (chunk.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, String> errors = productDao.createBatch(chunk);
+        report.imported(chunk.size() - errors.size());
+        errors.forEach((index, message) -> report.addError(chunkRows.get(index), message));
+
+        chunk.clear();
+        chunkRows.clear();
+    }
+
+    private static String validate(Product product, Set<Integer> categoryIds)
+    {
+        if (product.getName() == null || product.getName().isBlank())
+        {
+            return "name is required";
+        }
+        if (product.getPrice() == null || product.getPrice().signum() < 0)
+        {
+            return "price must be zero or more";
+        }
+        if (!categoryIds.contains(product.getCategoryId()))
+        {
+            return "unknown category: " + product.getCategoryId();
+        }
+        if (product.getStock() < 0)
+        {
+            return "stock must be zero or more";
+        }
+        return null;
+    }
+
+
+    // ROW READERS
+
+    private interface RowReader
+    {
+        // the next product, or null at the end of the input; IllegalArgumentException for a row that cannot be parsed
+        Product next() throws IOException;
+
+        int rowNumber();
+    }
+
+    // one JSON product per line; blank lines are skipped but still counted so row numbers match line numbers
+    private final class NdjsonRows implements RowReader
+    {
+        private final BufferedReader reader;
+        private int line;
+
+        NdjsonRows(BufferedReader reader)
+        {
+            this.reader = reader;
+        }
+
+        @Override
+        public Product next() throws IOException
+        {
+            String text;
+            do
+            {
+                text = reader.readLine();
+                if (text == null)
+                {
+                    return null;
+                }
+                line++;
+            }
+            while (text.isBlank());
+
+            try
+            {
+                return productReader.readValue(text);
+            }
+            catch (JsonProcessingException e)
+            {
+                throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public int rowNumber()
+        {
+            return line;
+        }
+    }
+
+    // RFC 4180 CSV with a header row naming the columns (name, price, category_id, description,
+    // subcategory, image_url, stock, featured); column order is free and unknown columns are ignored
+    private static final class CsvRows implements RowReader
+    {
+        private final BufferedReader reader;
+        private Map<String, Integer> columns;
+        private int row;
+
+        CsvRows(BufferedReader reader)
+        {
+            this.reader = reader;
+        }
+
+        @Override
+        public Product next() throws IOException
+        {
+            if (columns == null)
+            {
+                readHeader();
+            }
+
+            List<String> fields;
+            do
+            {
+                fields = readRecord(reader);
+                if (fields == null)
+                {
+                    return null;
+                }
+            }
+            while (fields.size() == 1 && fields.get(0).isBlank());
+
+            row++;
+
+            Product product = new Product();
+            product.setName(field(fields, "name"));
+            product.setDescription(field(fields, "description"));
+            product.setSubCategory(field(fields, "subcategory"));
+            product.setImageUrl(field(fields, "imageurl"));
+
+            String price = field(fields, "price");
+            String categoryId = field(fields, "categoryid");
+            String stock = field(fields, "stock");
+            String featured = field(fields, "featured");
+            try
+            {
+                product.setPrice(price == null || price.isBlank() ? null : new BigDecimal(price.trim()));
+                product.setCategoryId(categoryId == null || categoryId.isBlank() ? 0 : Integer.parseInt(categoryId.trim()));
+                product.setStock(stock == null || stock.isBlank() ? 0 : Integer.parseInt(stock.trim()));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("invalid number in price, category_id or stock");
+            }
+            product.setFeatured(featured != null
+                    && (featured.trim().equalsIgnoreCase("true") || featured.trim().equals("1")));
+
+            return product;
+        }
+
+        @Override
+        public int rowNumber()
+        {
+            return row;
+        }
+
+        private void readHeader() throws IOException
+        {
+            columns = new HashMap<>();
+
+            List<String> header = readRecord(reader);
+            if (header == null)
+            {
+                // empty body: nothing to import
+                return;
+            }
+
+            for (int i = 0; i < header.size(); i++)
+            {
+                // "category_id", "categoryId" and "Category ID" all name the same column
+                columns.put(header.get(i).replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        private String field(List<String> fields, String column)
+        {
+            Integer index = columns.get(column);
+            return index == null || index >= fields.size() ? null : fields.get(index);
+        }
+
+        // one record, or null at the end of the input; quoted fields may contain commas, quotes ("") and newlines
+        private static List<String> readRecord(BufferedReader reader) throws IOException
+        {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+
+            int c;
+            while ((c = reader.read()) != -1)
+            {
+                any = true;
+                if (quoted)
+                {
+                    if (c == '"')
+                    {
+                        reader.mark(1);
+                        if (reader.read() == '"')
+                        {
+                            field.append('"');
+                        }
+                        else
+                        {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    }
+                    else
+                    {
+                        field.append((char) c);
+                    }
+                }
+                else if (c == '"')
+                {
+                    quoted = true;
+                }
+                else if (c == ',')
+                {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                }
+                else if (c == '\n')
+                {
+                    break;
+                }
+                else if (c != '\r')
+                {
+                    field.append((char) c);
+                }
+            }
+
+            if (!any)
+            {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.configurations.WebConfig;
+import org.yearup.models.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/*
+    Writes products to the HTTP response as a JSON array while the DAO is still reading them, so large
+    listings are never materialized as a List<Product> or as a serialized byte[] in memory.
+ */
+@Component
+public class ProductJsonStreamer
+{
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter productWriter;
+
+    public ProductJsonStreamer(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+        // flushing after every product would turn each row into its own socket write
+        this.productWriter = objectMapper.writerFor(Product.class)
+                                         .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<Product>> source)
+    {
+        WebConfig.allowLongStream();
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream))
+            {
+                generator.writeStartArray();
+                source.accept(product -> {
+                    try
+                    {
+                        productWriter.writeValue(generator, product);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_JSON)
+                             .body(body);
+    }
+}
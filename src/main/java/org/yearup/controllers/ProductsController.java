@@ -1,51 +1,225 @@
 package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
+import org.yearup.data.index.ProductSuggestIndex;
 import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductImportReport;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/products")
 @CrossOrigin
 public class ProductsController
 {
+    private static final int MAX_IDS = 1000;
+
     private final ProductDao productDao;
+    private final ProductJsonStreamer productJsonStreamer;
+    private final ProductImporter productImporter;
 
     @Autowired
-    public ProductsController(ProductDao productDao)
+    public ProductsController(ProductDao productDao, ProductJsonStreamer productJsonStreamer,
+                              ProductImporter productImporter)
     {
         this.productDao = productDao;
+        this.productJsonStreamer = productJsonStreamer;
+        this.productImporter = productImporter;
     }
 
 
     // GET /products
-    // Search products using optional filters
+    // Search products using optional filters (q= searches name and description)
 
     @GetMapping
     @PreAuthorize("permitAll()")
     public List<Product> search(@RequestParam(name = "cat", required = false) Integer categoryId,
                                 @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
                                 @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
-                                @RequestParam(name = "subCategory", required = false) String subCategory)
+                                @RequestParam(name = "subCategory", required = false) String subCategory,
+                                @RequestParam(name = "q", required = false) String query,
+                                WebRequest webRequest)
     {
+        if (notModified(webRequest, "products", productDao.version()))
+        {
+            return null;
+        }
+
+        if (query != null && !query.isBlank())
+        {
+            // every match, best first, like the unfiltered list returns every product; ?limit= pages instead
+            ProductSearch search = new ProductSearch(categoryId, minPrice, maxPrice, subCategory);
+            search.setQuery(query);
+            search.setLimit(ProductSearch.MAX_LIMIT);
+
+            List<Product> matches = new ArrayList<>();
+            ProductPage page;
+            do
+            {
+                page = productDao.searchPage(search);
+                matches.addAll(page.getProducts());
+                if (page.getNextCursor() != null)
+                {
+                    search.setAfter(ProductCursor.decode(page.getNextCursor(), search.getSort()));
+                }
+            }
+            while (page.getNextCursor() != null);
+            return matches;
+        }
+
         return productDao.search(categoryId, minPrice, maxPrice, subCategory);
     }
 
 
+    // GET /products?limit=50&sort=price&after={cursor}
+    // Same filters as above, but returns one keyset page plus the cursor for the next one
+    // (with q= the page holds the best matches by relevance, and the cursor continues down the same ranking)
+    // facets=true adds category / subcategory / price bucket counts for the whole result set
+
+    @GetMapping(params = "limit")
+    @PreAuthorize("permitAll()")
+    public ProductPage searchPage(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                  @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                  @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                  @RequestParam(name = "subCategory", required = false) String subCategory,
+                                  @RequestParam(name = "q", required = false) String query,
+                                  @RequestParam(name = "sort", required = false) String sort,
+                                  @RequestParam(name = "after", required = false) String after,
+                                  @RequestParam(name = "limit") int limit,
+                                  @RequestParam(name = "facets", defaultValue = "false") boolean includeFacets,
+                                  @RequestParam(name = "priceStep", required = false) BigDecimal priceStep,
+                                  WebRequest webRequest)
+    {
+        if (notModified(webRequest, "products", productDao.version()))
+        {
+            return null;
+        }
+
+        ProductSearch search = new ProductSearch(categoryId, minPrice, maxPrice, subCategory);
+        search.setQuery(query);
+
+        try
+        {
+            search.setPaging(sort, after, limit);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        ProductPage page = productDao.searchPage(search);
+
+        if (includeFacets)
+        {
+            BigDecimal step = priceStep == null ? ProductFacets.DEFAULT_PRICE_STEP : priceStep.setScale(2, RoundingMode.HALF_UP);
+            if (step.signum() <= 0)
+            {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "priceStep must be positive.");
+            }
+            page.setFacets(productDao.facets(search, step));
+        }
+
+        return page;
+    }
+
+
+    // GET /products?stream=true
+    // ADMIN ONLY — Same filters and JSON array as above, streamed straight from the database cursor (for exports).
+    // Each stream holds a pooled connection until the client has read everything, so it is not open to everyone
+
+    @GetMapping(params = "stream=true")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestParam(name = "cat", required = false) Integer categoryId,
+                                                              @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+                                                              @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+                                                              @RequestParam(name = "subCategory", required = false) String subCategory)
+    {
+        return productJsonStreamer.stream(consumer ->
+                productDao.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer));
+    }
+
+
+    // GET /products?ids=12,7,31
+    // Several products by ID in one round trip, in the order asked for (unknown IDs are left out)
+
+    @GetMapping(params = "ids")
+    @PreAuthorize("permitAll()")
+    public List<Product> getByIds(@RequestParam(name = "ids") List<Integer> ids, WebRequest webRequest)
+    {
+        if (ids.size() > MAX_IDS)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_IDS + " ids per request.");
+        }
+
+        if (notModified(webRequest, "products", productDao.version()))
+        {
+            return null;
+        }
+
+        return productDao.getByIds(ids);
+    }
+
+
+    // GET /products/suggest?prefix=sm&limit=10
+    // Typeahead over product names and subcategories, best first
+
+    @GetMapping("/suggest")
+    @PreAuthorize("permitAll()")
+    public List<ProductSuggestion> suggest(@RequestParam(name = "prefix") String prefix,
+                                           @RequestParam(name = "limit", defaultValue = "10") int limit)
+    {
+        if (prefix.isBlank())
+        {
+            return List.of();
+        }
+
+        return productDao.suggest(prefix, Math.max(1, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS)));
+    }
+
+
     // GET /products/{id}
     // Get a single product by ID
+    // Catalog reads carry an ETag from the DAO version stamps; a matching If-None-Match gets a 304
 
     @GetMapping("/{id}")
     @PreAuthorize("permitAll()")
-    public Product getById(@PathVariable int id)
+    public Product getById(@PathVariable int id, WebRequest webRequest)
     {
+        if (notModified(webRequest, "product-" + id, productDao.version(id)))
+        {
+            return null;
+        }
+
         Product product = productDao.getById(id);
 
         if (product == null)
@@ -69,6 +243,26 @@ public class ProductsController
     }
 
 
+    // POST /products/import   (Content-Type: application/x-ndjson or text/csv)
+    // ADMIN ONLY — Bulk insert products from a streamed file; bad rows are reported and skipped
+
+    @PostMapping(path = "/import", consumes = {ProductImporter.NDJSON, ProductImporter.CSV})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ProductImportReport importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                              InputStream body) throws IOException
+    {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        Charset charset = mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        Reader reader = new InputStreamReader(body, charset);
+
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(ProductImporter.CSV)))
+        {
+            return productImporter.importCsv(reader);
+        }
+        return productImporter.importNdjson(reader);
+    }
+
+
     // PUT /products/{id}
     // ADMIN ONLY — Update an existing product
 
@@ -95,6 +289,70 @@ public class ProductsController
     }
 
 
+    // PATCH /products
+    // ADMIN ONLY — Bulk partial update of price / stock / featured; one result per row, in request order
+
+    @PatchMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<ProductUpdateResult> updateProducts(@RequestBody List<ProductUpdate> updates)
+    {
+        ProductUpdateResult[] results = new ProductUpdateResult[updates.size()];
+        List<ProductUpdate> valid = new ArrayList<>(updates.size());
+        List<Integer> validRows = new ArrayList<>(updates.size());
+        Set<Integer> seen = new HashSet<>();
+
+        // rows that fail validation never reach the database
+        for (int i = 0; i < updates.size(); i++)
+        {
+            ProductUpdate update = updates.get(i);
+            String problem = validate(update, seen);
+            if (problem != null)
+            {
+                int productId = update == null ? 0 : update.getProductId();
+                results[i] = new ProductUpdateResult(productId, ProductUpdateResult.INVALID, problem);
+            }
+            else
+            {
+                valid.add(update);
+                validRows.add(i);
+            }
+        }
+
+        List<ProductUpdateResult> applied = productDao.updateBatch(valid);
+        for (int i = 0; i < applied.size(); i++)
+        {
+            results[validRows.get(i)] = applied.get(i);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private static String validate(ProductUpdate update, Set<Integer> seen)
+    {
+        if (update == null || update.getProductId() <= 0)
+        {
+            return "productId is required";
+        }
+        if (!seen.add(update.getProductId()))
+        {
+            return "productId appears more than once";
+        }
+        if (update.getPrice() == null && update.getStock() == null && update.getFeatured() == null)
+        {
+            return "nothing to update";
+        }
+        if (update.getPrice() != null && update.getPrice().signum() < 0)
+        {
+            return "price must be zero or more";
+        }
+        if (update.getStock() != null && update.getStock() < 0)
+        {
+            return "stock must be zero or more";
+        }
+        return null;
+    }
+
+
     // DELETE /products/{id}
     // ADMIN ONLY — Delete a product
 
@@ -112,5 +370,12 @@ public class ProductsController
 
         productDao.delete(id);
     }
-}
 
+
+    // true when the client's copy is current; the response is then already a 304 and no DAO read is needed
+    private static boolean notModified(WebRequest webRequest, String resource, long version)
+    {
+        String etag = VersionStamps.etag(resource, version);
+        return etag != null && webRequest.checkNotModified(etag);
+    }
+}
@@ -0,0 +1,99 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.SalesRollupDao;
+import org.yearup.models.DailySales;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports/sales")
+@CrossOrigin
+@PreAuthorize("hasRole('ADMIN')")
+public class SalesReportsController
+{
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    private final SalesRollupDao salesRollupDao;
+
+    @Autowired
+    public SalesReportsController(SalesRollupDao salesRollupDao)
+    {
+        this.salesRollupDao = salesRollupDao;
+    }
+
+
+    // GET /reports/sales/products?from=2024-01-01&to=2024-01-31&productId=5
+    // ADMIN ONLY — Units and revenue per product and day (the last 30 days by default), from the daily rollups
+
+    @GetMapping("/products")
+    public List<DailySales> getProductSales(@RequestParam(name = "productId", required = false) Integer productId,
+                                            @RequestParam(name = "from", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(name = "to", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_DAYS - 1) : from;
+        checkRange(start, end);
+
+        return salesRollupDao.getProductSales(productId, start, end);
+    }
+
+
+    // GET /reports/sales/categories?from=2024-01-01&to=2024-01-31&categoryId=1
+    // ADMIN ONLY — Units and revenue per category and day (the last 30 days by default), from the daily rollups
+
+    @GetMapping("/categories")
+    public List<DailySales> getCategorySales(@RequestParam(name = "categoryId", required = false) Integer categoryId,
+                                             @RequestParam(name = "from", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(name = "to", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_DAYS - 1) : from;
+        checkRange(start, end);
+
+        return salesRollupDao.getCategorySales(categoryId, start, end);
+    }
+
+
+    // POST /reports/sales/backfill
+    // ADMIN ONLY — Rebuild the rollups from every order line item, in the background (progress in GET /metrics)
+
+    @PostMapping("/backfill")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void backfill()
+    {
+        try
+        {
+            salesRollupDao.backfill();
+        }
+        catch (IllegalStateException e)
+        {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+
+    private static void checkRange(LocalDate from, LocalDate to)
+    {
+        if (from.isAfter(to))
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_DAYS + " days per request.");
+        }
+    }
+}
@@ -1,55 +1,171 @@
 package org.yearup.controllers;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
-import org.yearup.data.UserDao;
+import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
-import org.yearup.models.User;
+import org.yearup.models.ShoppingCartChange;
+import org.yearup.models.ShoppingCartItem;
+import org.yearup.security.AuthenticatedUser;
 
-import java.security.Principal;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
-// convert this class to a REST controller
-// only logged-in users should have access to these actions
+@RestController
+@RequestMapping("/cart")
+@CrossOrigin
+@PreAuthorize("isAuthenticated()")
 public class ShoppingCartController
 {
-    // a shopping cart requires
-    private ShoppingCartDao shoppingCartDao;
-    private UserDao userDao;
-    private ProductDao productDao;
+    private static final int MAX_CHANGES = 500;
 
+    private final ShoppingCartDao shoppingCartDao;
+    private final ProductDao productDao;
 
+    @Autowired
+    public ShoppingCartController(ShoppingCartDao shoppingCartDao, ProductDao productDao)
+    {
+        this.shoppingCartDao = shoppingCartDao;
+        this.productDao = productDao;
+    }
+
+
+    // GET /cart
+    // The current user's cart (one query; the user id comes from the token, so there is no users lookup)
+
+    @GetMapping
+    public ShoppingCart getCart(@AuthenticationPrincipal AuthenticatedUser user)
+    {
+        return shoppingCartDao.getByUserId(userId(user));
+    }
+
+
+    // POST /cart/products/{productId}
+    // Add one of the product to the cart, or one more if it is already there
 
-    // each method in this controller requires a Principal object as a parameter
-    public ShoppingCart getCart(Principal principal)
+    @PostMapping("/products/{productId}")
+    public ShoppingCart addProduct(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable int productId)
     {
-        try
+        int userId = userId(user);
+
+        if (!shoppingCartDao.addProduct(userId, productId))
         {
-            // get the currently logged-in username
-            String userName = principal.getName();
-            // find database user by userId
-            User user = userDao.getByUserName(userName);
-            int userId = user.getId();
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
 
-            // use the shoppingCartDao to get all items in the cart and return the cart
-            return null;
+        return shoppingCartDao.getByUserId(userId);
+    }
+
+
+    // PUT /cart/products/{productId}
+    // Set the quantity of a product already in the cart (quantity is the only value read from the body)
+
+    @PutMapping("/products/{productId}")
+    public ShoppingCart updateProduct(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable int productId,
+                                      @RequestBody ShoppingCartItem item)
+    {
+        int userId = userId(user);
+
+        if (item.getQuantity() < 1)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be at least 1.");
         }
-        catch(Exception e)
+
+        if (!shoppingCartDao.updateQuantity(userId, productId, item.getQuantity()))
         {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product is not in the cart.");
         }
+
+        return shoppingCartDao.getByUserId(userId);
     }
 
-    // add a POST method to add a product to the cart - the url should be
-    // https://localhost:8080/cart/products/15 (15 is the productId to be added
 
+    // PATCH /cart   body: [{"productId": 12, "quantity": 2}, {"productId": 7, "quantity": 0}]
+    // Set several quantities at once (0 removes the line); applied in one transaction, then the cart is read once
 
-    // add a PUT method to update an existing product in the cart - the url should be
-    // https://localhost:8080/cart/products/15 (15 is the productId to be updated)
-    // the BODY should be a ShoppingCartItem - quantity is the only value that will be updated
+    @PatchMapping
+    public ShoppingCart updateCart(@AuthenticationPrincipal AuthenticatedUser user,
+                                   @RequestBody List<ShoppingCartChange> changes)
+    {
+        int userId = userId(user);
 
+        if (changes.size() > MAX_CHANGES)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_CHANGES + " changes per request.");
+        }
 
-    // add a DELETE method to clear all products from the current users cart
-    // https://localhost:8080/cart
+        Set<Integer> seen = new HashSet<>();
+        Set<Integer> added = new LinkedHashSet<>();
+        for (ShoppingCartChange change : changes)
+        {
+            if (change == null || change.getProductId() <= 0)
+            {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "productId is required.");
+            }
+            if (change.getQuantity() == null)
+            {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity is required.");
+            }
+            if (change.getQuantity() < 0)
+            {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be zero or more.");
+            }
+            if (!seen.add(change.getProductId()))
+            {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "productId " + change.getProductId() + " appears more than once.");
+            }
+            if (change.getQuantity() > 0)
+            {
+                added.add(change.getProductId());
+            }
+        }
+
+        // products being added must exist (one cached lookup for all of them)
+        for (Product product : productDao.getByIds(added))
+        {
+            added.remove(product.getProductId());
+        }
+        if (!added.isEmpty())
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Products not found: " + added);
+        }
+
+        // a product deleted since the lookup above
+        if (!shoppingCartDao.applyChanges(userId, changes))
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found.");
+        }
+        return shoppingCartDao.getByUserId(userId);
+    }
+
+
+    // DELETE /cart
+    // Remove everything from the current user's cart
+
+    @DeleteMapping
+    public ShoppingCart clearCart(@AuthenticationPrincipal AuthenticatedUser user)
+    {
+        shoppingCartDao.clear(userId(user));
+        return new ShoppingCart();
+    }
+
+
+    // tokens issued before the user id claim existed carry no AuthenticatedUser
+    private static int userId(AuthenticatedUser user)
+    {
+        if (user == null)
+        {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Please log in again.");
+        }
+        return user.getUserId();
+    }
 }
@@ -11,4 +11,7 @@ public interface CategoryDao
     Category create(Category category);
     Category update(int categoryId, Category category);
     void delete(int categoryId);
+    // VersionStamps for the categories table (all categories / one category); VersionStamps.UNKNOWN during a write
+    long version();
+    long version(int categoryId);
 }
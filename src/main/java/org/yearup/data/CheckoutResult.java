@@ -0,0 +1,38 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+
+/**
+ * The outcome of one checkout in a group (OrderDao.checkoutAll): the order, or why it was not created.
+ */
+public class CheckoutResult
+{
+    private final Order order;
+    private final RuntimeException error;
+
+    private CheckoutResult(Order order, RuntimeException error)
+    {
+        this.order = order;
+        this.error = error;
+    }
+
+    public static CheckoutResult created(Order order)
+    {
+        return new CheckoutResult(order, null);
+    }
+
+    public static CheckoutResult failed(RuntimeException error)
+    {
+        return new CheckoutResult(null, error);
+    }
+
+    public Order getOrder()
+    {
+        return order;
+    }
+
+    public RuntimeException getError()
+    {
+        return error;
+    }
+}
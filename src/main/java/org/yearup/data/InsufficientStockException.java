@@ -0,0 +1,22 @@
+package org.yearup.data;
+
+import java.util.List;
+
+/**
+ * Thrown by checkout when some products do not have enough stock left; nothing was written.
+ */
+public class InsufficientStockException extends RuntimeException
+{
+    private final List<Integer> productIds;
+
+    public InsufficientStockException(List<Integer> productIds)
+    {
+        super("Not enough stock for products " + productIds);
+        this.productIds = productIds;
+    }
+
+    public List<Integer> getProductIds()
+    {
+        return productIds;
+    }
+}
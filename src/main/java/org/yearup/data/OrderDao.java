@@ -0,0 +1,27 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderPage;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+public interface OrderDao
+{
+    // turns the user's cart into an order in one transaction: order row, line items, stock decrement, empty cart.
+    // Returns null for an empty cart; throws InsufficientStockException (and writes nothing) when stock runs short.
+    Order checkout(int userId);
+
+    // checks out several users in one transaction with one commit; a checkout that fails is rolled back to its own
+    // savepoint and reported, the others are kept. One result per user, in the same order.
+    List<CheckoutResult> checkoutAll(List<Integer> userIds);
+
+    // one page of the user's orders with their line items, newest first; after is the last order id of the
+    // previous page (null for the first page)
+    OrderPage getPage(int userId, Integer after, int limit);
+
+    // every line item of every order (or of one user's orders), in order id order, straight from the database
+    // cursor. Consecutive line items of one order share the same Order instance, whose line item list stays empty.
+    void streamLineItems(Integer userId, BiConsumer<Order, OrderLineItem> consumer);
+}
@@ -1,16 +1,40 @@
 package org.yearup.data;
 
 import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ProductDao
 {
     List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory);
+    ProductPage searchPage(ProductSearch search);
+    ProductFacets facets(ProductSearch search, BigDecimal priceStep);
+    void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, Consumer<Product> consumer);
+    List<ProductSuggestion> suggest(String prefix, int limit);
     List<Product> listByCategoryId(int categoryId);
     Product getById(int productId);
+    List<Product> getByIds(Collection<Integer> productIds);
     Product create(Product product);
+    // inserts the batch in one transaction; created products get their new id, failed rows are returned by list index
+    Map<Integer, String> createBatch(List<Product> products);
     void update(int productId, Product product);
+    // partial updates (price / stock / featured) in chunked transactions; one result per update, in the same order
+    List<ProductUpdateResult> updateBatch(List<ProductUpdate> updates);
     void delete(int productId);
+    // products whose stock was changed outside this DAO (checkout, stock shards); cached copies, the catalog index
+    // and versions catch up. Changes to other columns must go through update / updateBatch.
+    void refresh(Collection<Integer> productIds);
+    // VersionStamps for the products table (all products / one product); VersionStamps.UNKNOWN during a write
+    long version();
+    long version(int productId);
 }
@@ -0,0 +1,18 @@
+package org.yearup.data;
+
+import org.yearup.models.DailySales;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesRollupDao
+{
+    // per product and day, from and to inclusive, ordered by day then product; productId null means every product
+    List<DailySales> getProductSales(Integer productId, LocalDate from, LocalDate to);
+
+    // per category and day, from and to inclusive, ordered by day then category; categoryId null means every category
+    List<DailySales> getCategorySales(Integer categoryId, LocalDate from, LocalDate to);
+
+    // empties the rollups and rebuilds them from all of order_line_items in the background, in bounded batches
+    void backfill();
+}
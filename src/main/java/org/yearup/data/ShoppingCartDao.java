@@ -1,9 +1,33 @@
 package org.yearup.data;
 
 import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartChange;
+
+import java.util.List;
+import java.util.Map;
 
 public interface ShoppingCartDao
 {
     ShoppingCart getByUserId(int userId);
-    // add additional method signatures here
+
+    // adds one of the product (or one more, if it is already in the cart); false when the product does not exist
+    boolean addProduct(int userId, int productId);
+
+    // false when the product is not in the cart
+    boolean updateQuantity(int userId, int productId, int quantity);
+
+    void clear(int userId);
+
+    // sets each product's quantity (0 removes it) in one transaction; false, with nothing changed, when a product
+    // being added does not exist
+    boolean applyChanges(int userId, List<ShoppingCartChange> changes);
+
+    // replaces each user's whole cart with the given product -> quantity map, in one transaction
+    void saveAll(Map<Integer, Map<Integer, Integer>> quantitiesByUser);
+
+    // makes every change to the user's cart durable before returning (checkout reads the cart table directly)
+    void flush(int userId);
+
+    // forgets anything held in memory for the user's cart after the table was changed directly (checkout empties it)
+    void evict(int userId);
 }
@@ -0,0 +1,63 @@
+package org.yearup.data;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process version stamps for one table, kept by its DAO: a counter bumped after every committed write, and the
+ * counter value of the last write to each id (0 for ids never written since startup). Controllers turn them into
+ * ETags so conditional GETs can be answered without touching the database.
+ *
+ * Stamps only see writes made through this process. ETags also carry the process start time, so a restart never
+ * produces an ETag that matches one handed out before it. They are not shared between processes: with several
+ * instances behind a load balancer, or when rows change outside the owning DAO (SQL by hand, another service)
+ * without a refresh through it, an unchanged stamp can answer 304 for a row that has changed, until this process
+ * restarts.
+ */
+public class VersionStamps
+{
+    // returned by a DAO layer while one of its writes is still in flight; no ETag should be issued
+    public static final long UNKNOWN = -1;
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong current = new AtomicLong();
+    private final Map<Integer, Long> byId = new ConcurrentHashMap<>();
+
+    public long current()
+    {
+        return current.get();
+    }
+
+    public long of(int id)
+    {
+        return byId.getOrDefault(id, 0L);
+    }
+
+    public void bump(int id)
+    {
+        byId.put(id, current.incrementAndGet());
+    }
+
+    public void bumpAll(Collection<Integer> ids)
+    {
+        if (ids.isEmpty())
+        {
+            return;
+        }
+
+        long version = current.incrementAndGet();
+        for (Integer id : ids)
+        {
+            byId.put(id, version);
+        }
+    }
+
+    // strong ETag value for a resource at a version, or null when the version is UNKNOWN
+    public static String etag(String resource, long version)
+    {
+        return version == UNKNOWN ? null : "\"" + resource + "-" + EPOCH + "-" + version + "\"";
+    }
+}
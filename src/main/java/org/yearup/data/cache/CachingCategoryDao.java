@@ -0,0 +1,141 @@
+package org.yearup.data.cache;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.VersionStamps;
+import org.yearup.models.Category;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-through cache in front of CategoryDao. Categories almost never change, so the full list and each
+ * category are cached; a 404 from the database is cached as a negative entry and rethrown on every hit.
+ * Any write clears the whole cache, because the list depends on every row.
+ */
+public class CachingCategoryDao implements CategoryDao
+{
+    private static final String ALL_CATEGORIES = "all";
+
+    private final CategoryDao delegate;
+    private final LruTtlCache<Integer, Category> byIdCache;
+    private final LruTtlCache<String, List<Category>> listCache;
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    public CachingCategoryDao(CategoryDao delegate, LruTtlCache<Integer, Category> byIdCache,
+                              LruTtlCache<String, List<Category>> listCache)
+    {
+        this.delegate = delegate;
+        this.byIdCache = byIdCache;
+        this.listCache = listCache;
+    }
+
+
+    // CACHED READS
+
+    @Override
+    public List<Category> getAllCategories()
+    {
+        return listCache.get(ALL_CATEGORIES, key -> List.copyOf(delegate.getAllCategories()));
+    }
+
+    @Override
+    public Category getById(int categoryId)
+    {
+        Category category = byIdCache.get(categoryId, this::load);
+
+        if (category == null)
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found with id: " + categoryId);
+        }
+
+        return category;
+    }
+
+    private Category load(int categoryId)
+    {
+        try
+        {
+            return delegate.getById(categoryId);
+        }
+        catch (ResponseStatusException e)
+        {
+            if (e.getStatus() == HttpStatus.NOT_FOUND)
+            {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+
+    // WRITES (invalidate after the database change)
+
+    @Override
+    public Category create(Category category)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.create(category);
+        }
+        finally
+        {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Category update(int categoryId, Category category)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.update(categoryId, category);
+        }
+        finally
+        {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void delete(int categoryId)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.delete(categoryId);
+        }
+        finally
+        {
+            invalidate();
+        }
+    }
+
+    // clears both caches and ends the write started by the caller
+    private void invalidate()
+    {
+        byIdCache.invalidateAll();
+        listCache.invalidateAll();
+        writesInFlight.decrementAndGet();
+    }
+
+
+    // VERSION STAMPS (UNKNOWN while a write has not been invalidated yet, see CachingProductDao)
+
+    @Override
+    public long version()
+    {
+        long version = delegate.version();
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+
+    @Override
+    public long version(int categoryId)
+    {
+        long version = delegate.version(categoryId);
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+}
@@ -0,0 +1,246 @@
+package org.yearup.data.cache;
+
+import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of ProductDao for single-product reads (GET /products/{id} and ?ids=), including misses.
+ * Listing and search calls pass straight through. Every write invalidates the affected id after it commits.
+ */
+public class CachingProductDao implements ProductDao
+{
+    private final ProductDao delegate;
+    private final LruTtlCache<Integer, Product> cache;
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    public CachingProductDao(ProductDao delegate, LruTtlCache<Integer, Product> cache)
+    {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+
+    // CACHED READS
+
+    @Override
+    public Product getById(int productId)
+    {
+        return cache.get(productId, delegate::getById);
+    }
+
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds)
+    {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        ids.removeIf(id -> id == null);
+
+        // only the ids that are not cached reach the delegate, all in one call
+        Map<Integer, Product> byId = cache.getAll(ids, missing -> {
+            Map<Integer, Product> loaded = new HashMap<>();
+            for (Product product : delegate.getByIds(missing))
+            {
+                loaded.put(product.getProductId(), product);
+            }
+            return loaded;
+        });
+
+        List<Product> products = new ArrayList<>(byId.size());
+        for (Integer id : ids)
+        {
+            Product product = byId.get(id);
+            if (product != null)
+            {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+
+    // PASS-THROUGH READS
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        return delegate.search(categoryId, minPrice, maxPrice, subCategory);
+    }
+
+    @Override
+    public ProductPage searchPage(ProductSearch search)
+    {
+        return delegate.searchPage(search);
+    }
+
+    @Override
+    public ProductFacets facets(ProductSearch search, BigDecimal priceStep)
+    {
+        return delegate.facets(search, priceStep);
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        delegate.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer);
+    }
+
+    @Override
+    public List<ProductSuggestion> suggest(String prefix, int limit)
+    {
+        return delegate.suggest(prefix, limit);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        return delegate.listByCategoryId(categoryId);
+    }
+
+
+    // WRITES (invalidate after the database change)
+
+    @Override
+    public Product create(Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            Product created = delegate.create(product);
+            if (created != null)
+            {
+                // the new id may have been cached as "not found"
+                cache.invalidate(created.getProductId());
+            }
+            return created;
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> createBatch(List<Product> products)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.createBatch(products);
+        }
+        finally
+        {
+            List<Integer> createdIds = new ArrayList<>(products.size());
+            for (Product product : products)
+            {
+                if (product.getProductId() != 0)
+                {
+                    createdIds.add(product.getProductId());
+                }
+            }
+            cache.invalidateAll(createdIds);
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void update(int productId, Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.update(productId, product);
+        }
+        finally
+        {
+            cache.invalidate(productId);
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public List<ProductUpdateResult> updateBatch(List<ProductUpdate> updates)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.updateBatch(updates);
+        }
+        finally
+        {
+            // one invalidation pass for the whole batch
+            List<Integer> ids = new ArrayList<>(updates.size());
+            for (ProductUpdate update : updates)
+            {
+                ids.add(update.getProductId());
+            }
+            cache.invalidateAll(ids);
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void delete(int productId)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.delete(productId);
+        }
+        finally
+        {
+            cache.invalidate(productId);
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> productIds)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.refresh(productIds);
+        }
+        finally
+        {
+            cache.invalidateAll(productIds);
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+
+    // VERSION STAMPS
+    // The delegate bumps its stamps before this layer has invalidated, so while a write is in flight here the
+    // version is UNKNOWN; otherwise a stale cached product could be served under the new ETag.
+
+    @Override
+    public long version()
+    {
+        long version = delegate.version();
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+
+    @Override
+    public long version(int productId)
+    {
+        long version = delegate.version(productId);
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+}
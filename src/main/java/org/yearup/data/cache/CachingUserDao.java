@@ -0,0 +1,92 @@
+package org.yearup.data.cache;
+
+import org.yearup.data.UserDao;
+import org.yearup.models.User;
+import org.yearup.models.authentication.Authority;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read-through cache of username -> User in front of UserDao. Login (UserModelDetailsService) and the register
+ * duplicate check both look users up by name, so each of those is one query at most per TTL. Unknown names are
+ * cached as misses for a shorter time. Callers get a copy of the cached user, so they cannot change what the next
+ * login sees.
+ */
+public class CachingUserDao implements UserDao
+{
+    private final UserDao delegate;
+    private final LruTtlCache<String, User> byUsername;
+
+    public CachingUserDao(UserDao delegate, LruTtlCache<String, User> byUsername)
+    {
+        this.delegate = delegate;
+        this.byUsername = byUsername;
+    }
+
+
+    // CACHED READS
+
+    @Override
+    public User getByUserName(String username)
+    {
+        User user = byUsername.get(username, delegate::getByUserName);
+        return user == null ? null : copy(user);
+    }
+
+    @Override
+    public int getIdByUsername(String username)
+    {
+        User user = getByUserName(username);
+        return user == null ? -1 : user.getId();
+    }
+
+    @Override
+    public boolean exists(String username)
+    {
+        return byUsername.get(username, delegate::getByUserName) != null;
+    }
+
+
+    // PASS-THROUGH READS
+
+    @Override
+    public List<User> getAll()
+    {
+        return delegate.getAll();
+    }
+
+    @Override
+    public User getUserById(int userId)
+    {
+        return delegate.getUserById(userId);
+    }
+
+
+    // WRITES
+
+    @Override
+    public User create(User user)
+    {
+        try
+        {
+            return delegate.create(user);
+        }
+        finally
+        {
+            // the name was almost certainly just cached as a miss by the register duplicate check;
+            // login looks names up lower-cased
+            byUsername.invalidate(user.getUsername());
+            byUsername.invalidate(user.getUsername().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static User copy(User user)
+    {
+        User copy = new User(user.getId(), user.getUsername(), user.getPassword(), null);
+        copy.setActivated(user.isActivated());
+        copy.setAuthorities(new HashSet<Authority>(user.getAuthorities()));
+        return copy;
+    }
+}
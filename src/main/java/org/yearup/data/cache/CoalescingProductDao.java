@@ -0,0 +1,262 @@
+package org.yearup.data.cache;
+
+import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
+import org.yearup.models.PriceBucket;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Sits directly on the database DAO and collapses concurrent identical reads into one query (see SingleFlight),
+ * so a burst of the same request borrows one pooled connection instead of one each. Streaming reads and writes
+ * pass straight through; a write makes later reads start a fresh query rather than join one that began before it.
+ * Every caller gets its own copy of the shared result (unmodifiable lists of copied products), so one request
+ * cannot change what the others that joined the same query see.
+ */
+public class CoalescingProductDao implements ProductDao
+{
+    private final ProductDao delegate;
+    private final SingleFlight<List<Object>, Object> flights;
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    public CoalescingProductDao(ProductDao delegate, SingleFlight<List<Object>, Object> flights)
+    {
+        this.delegate = delegate;
+        this.flights = flights;
+    }
+
+
+    // COALESCED READS
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        return copy(coalesce(Arrays.asList("search", categoryId, minPrice, maxPrice, subCategory),
+                () -> delegate.search(categoryId, minPrice, maxPrice, subCategory)));
+    }
+
+    @Override
+    public ProductPage searchPage(ProductSearch search)
+    {
+        ProductPage shared = coalesce(key("searchPage", search), () -> delegate.searchPage(search));
+
+        // callers may attach facets to the page, so each one gets its own
+        return new ProductPage(copy(shared.getProducts()), shared.getNextCursor());
+    }
+
+    @Override
+    public ProductFacets facets(ProductSearch search, BigDecimal priceStep)
+    {
+        List<Object> key = key("facets", search);
+        key.add(priceStep);
+        return copy(coalesce(key, () -> delegate.facets(search, priceStep)));
+    }
+
+    @Override
+    public List<ProductSuggestion> suggest(String prefix, int limit)
+    {
+        List<ProductSuggestion> shared = coalesce(Arrays.asList("suggest", prefix, limit),
+                () -> delegate.suggest(prefix, limit));
+        return shared.stream()
+                .map(suggestion -> new ProductSuggestion(suggestion.getText(), suggestion.getType()))
+                .toList();
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        return copy(coalesce(Arrays.asList("listByCategoryId", categoryId),
+                () -> delegate.listByCategoryId(categoryId)));
+    }
+
+    @Override
+    public Product getById(int productId)
+    {
+        Product shared = coalesce(Arrays.asList("getById", productId), () -> delegate.getById(productId));
+        return shared == null ? null : copy(shared);
+    }
+
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds)
+    {
+        return copy(coalesce(Arrays.asList("getByIds", new ArrayList<>(productIds)),
+                () -> delegate.getByIds(productIds)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(List<Object> key, Supplier<T> loader)
+    {
+        return (T) flights.execute(key, loader::get);
+    }
+
+    // a snapshot of everything that affects the result (ProductSearch itself is mutable)
+    private static List<Object> key(String method, ProductSearch search)
+    {
+        return new ArrayList<>(Arrays.asList(method,
+                search.getCategoryId(), search.getMinPrice(), search.getMaxPrice(), search.getSubCategory(),
+                search.getQuery(),
+                search.getProductIds() == null ? null : new ArrayList<>(search.getProductIds()),
+                search.getSort(),
+                search.getAfter() == null ? null : search.getAfter().encode(),
+                search.getLimit()));
+    }
+
+    private static List<Product> copy(List<Product> products)
+    {
+        return products.stream().map(CoalescingProductDao::copy).toList();
+    }
+
+    private static Product copy(Product product)
+    {
+        return new Product(product.getProductId(), product.getName(), product.getPrice(), product.getCategoryId(),
+                product.getDescription(), product.getSubCategory(), product.getStock(), product.isFeatured(),
+                product.getImageUrl());
+    }
+
+    private static ProductFacets copy(ProductFacets facets)
+    {
+        ProductFacets copy = new ProductFacets(facets.getPriceStep());
+        facets.getCategories().forEach(copy::countCategory);
+        facets.getSubCategories().forEach(copy::countSubCategory);
+        for (PriceBucket bucket : facets.getPrices())
+        {
+            copy.countPriceBucket(copy.bucketOf(bucket.getMin()), bucket.getCount());
+        }
+        return copy;
+    }
+
+
+    // PASS-THROUGH READS
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        delegate.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer);
+    }
+
+
+    // WRITES (reads that start afterwards do not join earlier queries)
+
+    @Override
+    public Product create(Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.create(product);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> createBatch(List<Product> products)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.createBatch(products);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    @Override
+    public void update(int productId, Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.update(productId, product);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    @Override
+    public List<ProductUpdateResult> updateBatch(List<ProductUpdate> updates)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            return delegate.updateBatch(updates);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    @Override
+    public void delete(int productId)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.delete(productId);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> productIds)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.refresh(productIds);
+        }
+        finally
+        {
+            endWrite();
+        }
+    }
+
+    private void endWrite()
+    {
+        flights.forgetAll();
+        writesInFlight.decrementAndGet();
+    }
+
+
+    // VERSION STAMPS (UNKNOWN until in-flight reads from before a write can no longer be joined, see CachingProductDao)
+
+    @Override
+    public long version()
+    {
+        long version = delegate.version();
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+
+    @Override
+    public long version(int productId)
+    {
+        long version = delegate.version(productId);
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+}
@@ -0,0 +1,221 @@
+package org.yearup.data.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Small bounded read-through cache: least-recently-used eviction once maxSize is reached, plus a time-to-live per
+ * entry. A loader result of null is cached too (with its own, usually shorter, TTL) so repeated lookups of missing
+ * keys do not reach the database either.
+ *
+ * Loads run outside the lock. If the key is invalidated while a load is in flight, the loaded value is returned to
+ * that caller but not cached, so a write can never be overwritten by the stale read that raced it.
+ */
+public class LruTtlCache<K, V>
+{
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public LruTtlCache(int maxSize, long ttlMillis, long negativeTtlMillis)
+    {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key, Function<K, V> loader)
+    {
+        long loadGeneration;
+        synchronized (this)
+        {
+            Entry<V> entry = lookup(key, System.currentTimeMillis());
+            if (entry != null)
+            {
+                return entry.value;
+            }
+            loadGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+
+        synchronized (this)
+        {
+            if (generation == loadGeneration)
+            {
+                store(key, value, value == null ? negativeTtlMillis : ttlMillis);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Batch form of {@link #get}: every key that is not cached is handed to the loader in a single call. The loader
+     * returns the values it found; keys it leaves out are cached as misses. The result holds only non-null values.
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<List<K>, Map<K, V>> loader)
+    {
+        Map<K, V> found = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this)
+        {
+            long now = System.currentTimeMillis();
+            for (K key : keys)
+            {
+                Entry<V> entry = lookup(key, now);
+                if (entry == null)
+                {
+                    missing.add(key);
+                }
+                else if (entry.value != null)
+                {
+                    found.put(key, entry.value);
+                }
+            }
+            loadGeneration = generation;
+        }
+
+        if (missing.isEmpty())
+        {
+            return found;
+        }
+
+        Map<K, V> loaded = loader.apply(missing);
+
+        synchronized (this)
+        {
+            if (generation == loadGeneration)
+            {
+                for (K key : missing)
+                {
+                    V value = loaded.get(key);
+                    store(key, value, value == null ? negativeTtlMillis : ttlMillis);
+                }
+            }
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    // cached value, or null when the key is missing, expired or cached as a miss
+    public synchronized V getIfPresent(K key)
+    {
+        Entry<V> entry = lookup(key, System.currentTimeMillis());
+        return entry == null ? null : entry.value;
+    }
+
+    public synchronized void put(K key, V value)
+    {
+        store(key, value, value == null ? negativeTtlMillis : ttlMillis);
+    }
+
+    public synchronized void put(K key, V value, long entryTtlMillis)
+    {
+        store(key, value, entryTtlMillis);
+    }
+
+    public synchronized void invalidate(K key)
+    {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll(Collection<? extends K> keys)
+    {
+        generation++;
+        for (K key : keys)
+        {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    public Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) size());
+        stats.put("hits", hits.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    // live entry for the key (counting a hit), or null after counting a miss; caller holds the lock
+    private Entry<V> lookup(K key, long now)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null)
+        {
+            if (entry.expiresAt > now)
+            {
+                (entry.value == null ? negativeHits : hits).incrementAndGet();
+                return entry;
+            }
+            entries.remove(key);
+            expirations.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void store(K key, V value, long entryTtlMillis)
+    {
+        if (entryTtlMillis <= 0)
+        {
+            return;
+        }
+
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + entryTtlMillis));
+
+        // least recently used entries sit at the head of an access-ordered LinkedHashMap
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext())
+        {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
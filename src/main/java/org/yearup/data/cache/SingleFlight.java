@@ -0,0 +1,77 @@
+package org.yearup.data.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical calls: the first caller for a key runs the loader, and every caller that arrives
+ * with the same key while it is running waits for that result instead of running its own. Nothing is kept once
+ * the call completes, so this is not a cache; it only bounds the number of identical calls in flight to one.
+ *
+ * Waiters share the result object (or see the same exception); callers that hand it on copy it first, as
+ * CoalescingProductDao does.
+ */
+public class SingleFlight<K, V>
+{
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+    public V execute(K key, Supplier<V> loader)
+    {
+        calls.incrementAndGet();
+
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+
+        if (running != null)
+        {
+            collapsed.incrementAndGet();
+            try
+            {
+                return running.join();
+            }
+            catch (CompletionException e)
+            {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try
+        {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e)
+        {
+            call.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // later callers start a new call instead of joining one that began before now (callers already waiting still get its result)
+    public void forgetAll()
+    {
+        inFlight.clear();
+    }
+
+    public Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("collapsed", collapsed.get());
+        stats.put("inFlight", (long) inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,405 @@
+package org.yearup.data.cache;
+
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartChange;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps active carts in memory and writes them to the database behind the request. A cart is loaded from the
+ * delegate on first use; changes apply to the in-memory copy (one lock per cart) and mark it dirty. Dirty carts
+ * are written together with ShoppingCartDao.saveAll every flush interval, or as soon as maxDirty carts are
+ * waiting. Carts that stay clean and idle for idleMillis are dropped from memory.
+ *
+ * Durability:
+ * - A change is acknowledged before it is in the database. If the process dies without shutting down, changes
+ *   made since the last successful flush (at most one flush interval, more while the database is failing) are lost.
+ * - shutdown() flushes everything, so a normal stop loses nothing.
+ * - A failed flush leaves the carts dirty and they are written again by the next one.
+ * - flush(userId) writes one cart synchronously; checkout calls it before reading the cart table.
+ * - The in-memory copy is the truth for this process only; do not enable this with more than one instance, or
+ *   with anything else writing shopping_cart.
+ */
+public class WriteBehindShoppingCartDao implements ShoppingCartDao
+{
+    private final ShoppingCartDao delegate;
+    private final ProductDao productDao;
+    private final int maxDirty;
+    private final long idleMillis;
+
+    private final Map<Integer, CartState> carts = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedCarts = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+
+    // flushIntervalMillis <= 0 disables the background flush (only the size threshold, flush() and shutdown() write)
+    public WriteBehindShoppingCartDao(ShoppingCartDao delegate, ProductDao productDao,
+                                      long flushIntervalMillis, int maxDirty, long idleMillis)
+    {
+        this.delegate = delegate;
+        this.productDao = productDao;
+        this.maxDirty = maxDirty;
+        this.idleMillis = idleMillis;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMillis > 0)
+        {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    // READS
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        Map<Integer, Integer> quantities = withCart(userId, cart -> new HashMap<>(cart.quantities));
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        if (quantities.isEmpty())
+        {
+            return shoppingCart;
+        }
+
+        // one (cached) product lookup for the whole cart
+        for (Product product : productDao.getByIds(quantities.keySet()))
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(product);
+            item.setQuantity(quantities.get(product.getProductId()));
+            shoppingCart.add(item);
+        }
+        return shoppingCart;
+    }
+
+
+    // WRITES (in memory now, in the database on the next flush)
+
+    @Override
+    public boolean addProduct(int userId, int productId)
+    {
+        if (productDao.getById(productId) == null)
+        {
+            return false;
+        }
+
+        withCart(userId, cart -> {
+            cart.quantities.merge(productId, 1, Integer::sum);
+            return markDirty(userId, cart);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean updateQuantity(int userId, int productId, int quantity)
+    {
+        return withCart(userId, cart -> {
+            if (!cart.quantities.containsKey(productId))
+            {
+                return false;
+            }
+            if (quantity > 0)
+            {
+                cart.quantities.put(productId, quantity);
+            }
+            else
+            {
+                cart.quantities.remove(productId);
+            }
+            return markDirty(userId, cart);
+        });
+    }
+
+    @Override
+    public void clear(int userId)
+    {
+        withCart(userId, cart -> {
+            cart.quantities.clear();
+            return markDirty(userId, cart);
+        });
+    }
+
+    @Override
+    public boolean applyChanges(int userId, List<ShoppingCartChange> changes)
+    {
+        Set<Integer> added = new HashSet<>();
+        for (ShoppingCartChange change : changes)
+        {
+            if (change.getQuantity() > 0)
+            {
+                added.add(change.getProductId());
+            }
+        }
+        if (productDao.getByIds(added).size() < added.size())
+        {
+            return false;
+        }
+
+        withCart(userId, cart -> {
+            for (ShoppingCartChange change : changes)
+            {
+                if (change.getQuantity() > 0)
+                {
+                    cart.quantities.put(change.getProductId(), change.getQuantity());
+                }
+                else
+                {
+                    cart.quantities.remove(change.getProductId());
+                }
+            }
+            return markDirty(userId, cart);
+        });
+        return true;
+    }
+
+    @Override
+    public void saveAll(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+    {
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : quantitiesByUser.entrySet())
+        {
+            withCart(entry.getKey(), cart -> {
+                cart.quantities.clear();
+                entry.getValue().forEach((productId, quantity) -> {
+                    if (quantity > 0)
+                    {
+                        cart.quantities.put(productId, quantity);
+                    }
+                });
+                return markDirty(entry.getKey(), cart);
+            });
+        }
+    }
+
+    private boolean markDirty(int userId, CartState cart)
+    {
+        cart.dirty = true;
+        dirty.add(userId);
+
+        if (dirty.size() >= maxDirty && flushQueued.compareAndSet(false, true))
+        {
+            flusher.execute(this::flushQuietly);
+        }
+        return true;
+    }
+
+
+    // FLUSHING
+
+    @Override
+    public void flush(int userId)
+    {
+        synchronized (flushLock)
+        {
+            if (dirty.contains(userId))
+            {
+                write(List.of(userId));
+            }
+        }
+    }
+
+    // the next use reloads the cart from the table; changes not flushed by now are dropped with it
+    @Override
+    public void evict(int userId)
+    {
+        synchronized (flushLock)
+        {
+            CartState cart = carts.get(userId);
+            if (cart == null)
+            {
+                return;
+            }
+            synchronized (cart)
+            {
+                cart.evicted = true;
+                cart.dirty = false;
+                dirty.remove(userId);
+                carts.remove(userId, cart);
+            }
+        }
+    }
+
+    // writes every dirty cart; throws if the database write fails (the carts stay dirty)
+    public void flushAll()
+    {
+        synchronized (flushLock)
+        {
+            flushQueued.set(false);
+            write(new ArrayList<>(dirty));
+            evictIdle();
+        }
+    }
+
+    private void flushQuietly()
+    {
+        try
+        {
+            flushAll();
+        }
+        catch (RuntimeException e)
+        {
+            // counted in flushFailures; the next flush retries
+        }
+    }
+
+    // callers hold flushLock, so snapshots reach the database in the order they were taken
+    private void write(List<Integer> userIds)
+    {
+        if (userIds.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, Map<Integer, Integer>> snapshot = new HashMap<>();
+        for (Integer userId : userIds)
+        {
+            CartState cart = carts.get(userId);
+            if (cart == null)
+            {
+                dirty.remove(userId);
+                continue;
+            }
+            synchronized (cart)
+            {
+                dirty.remove(userId);
+                cart.dirty = false;
+                snapshot.put(userId, new HashMap<>(cart.quantities));
+            }
+        }
+
+        long started = System.currentTimeMillis();
+        try
+        {
+            delegate.saveAll(snapshot);
+        }
+        catch (RuntimeException e)
+        {
+            flushFailures.incrementAndGet();
+            for (Integer userId : snapshot.keySet())
+            {
+                CartState cart = carts.get(userId);
+                synchronized (cart)
+                {
+                    cart.dirty = true;
+                    dirty.add(userId);
+                }
+            }
+            throw e;
+        }
+
+        flushes.incrementAndGet();
+        flushedCarts.addAndGet(snapshot.size());
+        lastFlushMillis.set(System.currentTimeMillis() - started);
+    }
+
+    private void evictIdle()
+    {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        carts.forEach((userId, cart) -> {
+            synchronized (cart)
+            {
+                if (!cart.dirty && cart.lastUsed < cutoff)
+                {
+                    cart.evicted = true;
+                    carts.remove(userId, cart);
+                }
+            }
+        });
+    }
+
+    public void shutdown()
+    {
+        flusher.shutdown();
+        try
+        {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+    }
+
+
+    // CART STATE
+
+    private interface CartAction<T>
+    {
+        T apply(CartState cart);
+    }
+
+    // runs the action under the cart's lock, loading it from the delegate on first use
+    private <T> T withCart(int userId, CartAction<T> action)
+    {
+        while (true)
+        {
+            CartState cart = carts.computeIfAbsent(userId, id -> new CartState());
+            synchronized (cart)
+            {
+                if (cart.evicted)
+                {
+                    continue;
+                }
+                if (!cart.loaded)
+                {
+                    for (ShoppingCartItem item : delegate.getByUserId(userId).getItems().values())
+                    {
+                        cart.quantities.put(item.getProductId(), item.getQuantity());
+                    }
+                    cart.loaded = true;
+                }
+                cart.lastUsed = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    private static class CartState
+    {
+        final Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        boolean loaded;
+        boolean dirty;
+        boolean evicted;
+        long lastUsed;
+    }
+
+    public Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("activeCarts", (long) carts.size());
+        stats.put("dirtyCarts", (long) dirty.size());
+        stats.put("flushes", flushes.get());
+        stats.put("flushedCarts", flushedCarts.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("lastFlushMillis", lastFlushMillis.get());
+        return stats;
+    }
+}
@@ -0,0 +1,538 @@
+package org.yearup.data.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
+import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * ProductDao that keeps in-memory indexes of the products table in step with the database.
+ *
+ * With a {@link ProductCatalogIndex} all catalog reads are answered from memory and only writes reach the
+ * database. With a {@link ProductTextIndex}, q= searches are ranked from the inverted index, and with a
+ * {@link ProductSuggestIndex} typeahead never touches the database. Every successful write is re-read from the
+ * delegate and applied to each index so they never drift from the products table.
+ */
+public class IndexedProductDao implements ProductDao, InitializingBean
+{
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedProductDao.class);
+
+    // how deep a q= page ranks the text matches before it has to look further down
+    static final int TEXT_RANK_WINDOW = 256;
+
+    private final ProductDao delegate;
+    private final ProductCatalogIndex catalogIndex;
+    private final ProductTextIndex textIndex;
+    private final ProductSuggestIndex suggestIndex;
+    private final List<ProductIndex> indexes = new ArrayList<>();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+
+    // any index may be null when that feature is switched off
+    public IndexedProductDao(ProductDao delegate, ProductCatalogIndex catalogIndex, ProductTextIndex textIndex,
+                             ProductSuggestIndex suggestIndex)
+    {
+        this.delegate = delegate;
+        this.catalogIndex = catalogIndex;
+        this.textIndex = textIndex;
+        this.suggestIndex = suggestIndex;
+
+        if (catalogIndex != null)
+        {
+            indexes.add(catalogIndex);
+        }
+        if (textIndex != null)
+        {
+            indexes.add(textIndex);
+        }
+        if (suggestIndex != null)
+        {
+            indexes.add(suggestIndex);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        long start = System.currentTimeMillis();
+        List<Product> products = delegate.search(null, null, null, null);
+        for (ProductIndex index : indexes)
+        {
+            index.rebuild(products);
+        }
+        LOG.info("Product indexes loaded {} products in {} ms", products.size(), System.currentTimeMillis() - start);
+    }
+
+
+    // READS
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        if (catalogIndex == null)
+        {
+            return delegate.search(categoryId, minPrice, maxPrice, subCategory);
+        }
+        return catalogIndex.search(categoryId, minPrice, maxPrice, subCategory);
+    }
+
+    @Override
+    public ProductPage searchPage(ProductSearch search)
+    {
+        if (search.getQuery() != null && textIndex != null)
+        {
+            return textSearch(search);
+        }
+        if (catalogIndex == null || search.getQuery() != null)
+        {
+            return delegate.searchPage(search);
+        }
+        return catalogIndex.searchPage(search);
+    }
+
+    @Override
+    public ProductFacets facets(ProductSearch search, BigDecimal priceStep)
+    {
+        if (catalogIndex == null || (search.getQuery() != null && textIndex == null))
+        {
+            return delegate.facets(search, priceStep);
+        }
+        if (search.getQuery() != null)
+        {
+            // facet over every text match, not only the best page; counting needs no ranking
+            int[] matches = textIndex.matchingIds(search.getQuery());
+            List<Integer> ids = new ArrayList<>(matches.length);
+            for (int id : matches)
+            {
+                ids.add(id);
+            }
+            return catalogIndex.facets(search.withProductIds(ids), priceStep);
+        }
+        return catalogIndex.facets(search, priceStep);
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        if (catalogIndex == null)
+        {
+            delegate.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer);
+            return;
+        }
+        catalogIndex.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer);
+    }
+
+    @Override
+    public List<ProductSuggestion> suggest(String prefix, int limit)
+    {
+        if (suggestIndex == null)
+        {
+            return delegate.suggest(prefix, limit);
+        }
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        if (catalogIndex == null)
+        {
+            return delegate.listByCategoryId(categoryId);
+        }
+        return catalogIndex.listByCategoryId(categoryId);
+    }
+
+    @Override
+    public Product getById(int productId)
+    {
+        if (catalogIndex == null)
+        {
+            return delegate.getById(productId);
+        }
+        return catalogIndex.getById(productId);
+    }
+
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds)
+    {
+        if (catalogIndex == null)
+        {
+            return delegate.getByIds(productIds);
+        }
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        for (Integer productId : new LinkedHashSet<>(productIds))
+        {
+            Product product = productId == null ? null : catalogIndex.getById(productId);
+            if (product != null)
+            {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Ranked q= search: one page of the best matches that also pass the other filters, with a cursor holding the
+    // rank position and id of the last product shown. Only the top of the ranking is selected (a bounded heap,
+    // O(M log K) for M matches); when the filters drop too many of those, the window doubles until the page is
+    // full or the ranking runs out, so a narrow filter still finds matches ranked far down.
+    private ProductPage textSearch(ProductSearch search)
+    {
+        int limit = search.getLimit();
+        ProductCursor after = search.getAfter();
+        int hint = cursorPosition(after);
+
+        long window = Math.max(TEXT_RANK_WINDOW, hint + 1L + 2L * (limit + 1));
+        int[] ranked = textIndex.search(search.getQuery(), (int) Math.min(window, Integer.MAX_VALUE));
+        int from = resumeAt(ranked, after, hint);
+
+        // up to limit + 1 products; the extra one only signals that another page exists
+        List<Product> rows = new ArrayList<>(limit + 1);
+        List<Integer> positions = new ArrayList<>(limit + 1);
+
+        while (true)
+        {
+            collect(search, ranked, from, rows, positions);
+            if (rows.size() > limit || ranked.length < window || window >= Integer.MAX_VALUE)
+            {
+                break;
+            }
+
+            // the ranking is deterministic, so the longer one starts with the rows already walked
+            from = ranked.length;
+            window *= 2;
+            ranked = textIndex.search(search.getQuery(), (int) Math.min(window, Integer.MAX_VALUE));
+        }
+
+        if (rows.size() <= limit)
+        {
+            return new ProductPage(rows, null);
+        }
+
+        List<Product> page = new ArrayList<>(rows.subList(0, limit));
+        Product last = page.get(limit - 1);
+        ProductCursor next = new ProductCursor(search.getSort(), Integer.toString(positions.get(limit - 1)),
+                last.getProductId());
+        return new ProductPage(page, next.encode());
+    }
+
+    // adds the products of ranked[from..] that pass the filters, in rank order, until rows holds limit + 1
+    private void collect(ProductSearch search, int[] ranked, int from, List<Product> rows, List<Integer> positions)
+    {
+        int wanted = search.getLimit() + 1;
+
+        if (catalogIndex != null)
+        {
+            for (int i = from; i < ranked.length && rows.size() < wanted; i++)
+            {
+                Product product = catalogIndex.getById(ranked[i]);
+                if (product != null && search.matches(product))
+                {
+                    rows.add(product);
+                    positions.add(i);
+                }
+            }
+            return;
+        }
+
+        // fetch the candidates a chunk at a time (the filters are applied in SQL), then restore rank order
+        for (int chunk = from; chunk < ranked.length && rows.size() < wanted; chunk += ProductSearch.MAX_LIMIT)
+        {
+            int chunkEnd = Math.min(chunk + ProductSearch.MAX_LIMIT, ranked.length);
+            List<Integer> ids = new ArrayList<>(chunkEnd - chunk);
+            for (int i = chunk; i < chunkEnd; i++)
+            {
+                ids.add(ranked[i]);
+            }
+
+            ProductSearch candidates = search.withProductIds(ids);
+            candidates.setAfter(null);
+            candidates.setLimit(ProductSearch.MAX_LIMIT);
+
+            Map<Integer, Product> byId = new HashMap<>();
+            for (Product product : delegate.searchPage(candidates).getProducts())
+            {
+                byId.put(product.getProductId(), product);
+            }
+
+            for (int i = chunk; i < chunkEnd && rows.size() < wanted; i++)
+            {
+                Product product = byId.get(ranked[i]);
+                if (product != null)
+                {
+                    rows.add(product);
+                    positions.add(i);
+                }
+            }
+        }
+    }
+
+    // the rank position stored in a text search cursor; -1 without one
+    private static int cursorPosition(ProductCursor after)
+    {
+        if (after == null)
+        {
+            return -1;
+        }
+        try
+        {
+            return Math.max(0, Integer.parseInt(after.getValue()));
+        }
+        catch (NumberFormatException e)
+        {
+            return Integer.MAX_VALUE - 1;
+        }
+    }
+
+    // the rank position after the last product shown: O(1) when nothing moved it, else found again by id
+    private static int resumeAt(int[] ranked, ProductCursor after, int hint)
+    {
+        if (after == null)
+        {
+            return 0;
+        }
+        if (hint < ranked.length && ranked[hint] == after.getProductId())
+        {
+            return hint + 1;
+        }
+
+        for (int i = 0; i < ranked.length; i++)
+        {
+            if (ranked[i] == after.getProductId())
+            {
+                return i + 1;
+            }
+        }
+
+        // it no longer matches: carry on from where it used to be
+        return Math.min(hint + 1, ranked.length);
+    }
+
+
+    // WRITES (database first, then refresh the indexes)
+
+    @Override
+    public Product create(Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            Product created = delegate.create(product);
+            if (created != null)
+            {
+                for (ProductIndex index : indexes)
+                {
+                    index.put(created);
+                }
+            }
+            return created;
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Map<Integer, String> createBatch(List<Product> products)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            Map<Integer, String> errors = delegate.createBatch(products);
+
+            List<Integer> createdIds = new ArrayList<>(products.size());
+            for (Product product : products)
+            {
+                if (product.getProductId() != 0)
+                {
+                    createdIds.add(product.getProductId());
+                }
+            }
+
+            // index the rows as stored (defaults, rounding), not the objects the caller sent
+            if (!createdIds.isEmpty() && !indexes.isEmpty())
+            {
+                List<Product> created = delegate.getByIds(createdIds);
+                for (ProductIndex index : indexes)
+                {
+                    index.putAll(created);
+                }
+            }
+            return errors;
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void update(int productId, Product product)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.update(productId, product);
+            refresh(productId);
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public List<ProductUpdateResult> updateBatch(List<ProductUpdate> updates)
+    {
+        writesInFlight.incrementAndGet();
+
+        // if a later chunk fails, the chunks before it are already committed: re-read every row the batch named
+        List<Integer> updatedIds = new ArrayList<>(updates.size());
+        for (ProductUpdate update : updates)
+        {
+            updatedIds.add(update.getProductId());
+        }
+
+        try
+        {
+            List<ProductUpdateResult> results = delegate.updateBatch(updates);
+
+            updatedIds.clear();
+            for (ProductUpdateResult result : results)
+            {
+                if (ProductUpdateResult.UPDATED.equals(result.getStatus()))
+                {
+                    updatedIds.add(result.getProductId());
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            try
+            {
+                // re-read the changed rows in one batch and apply them with one rebuild per index
+                if (!updatedIds.isEmpty() && !indexes.isEmpty())
+                {
+                    List<Product> current = delegate.getByIds(updatedIds);
+                    for (ProductIndex index : indexes)
+                    {
+                        index.putAll(current);
+                    }
+                }
+            }
+            finally
+            {
+                writesInFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void delete(int productId)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.delete(productId);
+            for (ProductIndex index : indexes)
+            {
+                index.remove(productId);
+            }
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> productIds)
+    {
+        writesInFlight.incrementAndGet();
+        try
+        {
+            delegate.refresh(productIds);
+
+            // Called after every checkout, so only the catalog index, the one that serves stock, is updated, and
+            // row by row. The text and suggest indexes hold no stock; other changes go through update / delete.
+            if (catalogIndex != null && !productIds.isEmpty())
+            {
+                List<Product> current = delegate.getByIds(productIds);
+                catalogIndex.putRows(current);
+
+                if (current.size() < new HashSet<>(productIds).size())
+                {
+                    Set<Integer> missing = new HashSet<>(productIds);
+                    for (Product product : current)
+                    {
+                        missing.remove(product.getProductId());
+                    }
+                    for (Integer productId : missing)
+                    {
+                        catalogIndex.remove(productId);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            writesInFlight.decrementAndGet();
+        }
+    }
+
+    private void refresh(int productId)
+    {
+        Product current = delegate.getById(productId);
+        for (ProductIndex index : indexes)
+        {
+            if (current == null)
+            {
+                index.remove(productId);
+            }
+            else
+            {
+                index.put(current);
+            }
+        }
+    }
+
+
+    // VERSION STAMPS (UNKNOWN until the indexes have caught up with a write, see CachingProductDao)
+
+    @Override
+    public long version()
+    {
+        long version = delegate.version();
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+
+    @Override
+    public long version(int productId)
+    {
+        long version = delegate.version(productId);
+        return writesInFlight.get() == 0 ? version : VersionStamps.UNKNOWN;
+    }
+}
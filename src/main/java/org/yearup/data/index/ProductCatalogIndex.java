@@ -0,0 +1,516 @@
+package org.yearup.data.index;
+
+import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory, columnar snapshot of the products table.
+ *
+ * Rows are stored by position in product_id order. Each category owns a bitmap of positions, prices are kept in a
+ * sorted cents array (with a permutation back to positions) for range scans, and subcategories are dictionary
+ * encoded so a LIKE '%x%' filter only has to test each distinct value once.
+ *
+ * Readers always see a complete snapshot. Writers rebuild the snapshot (copy-on-write), which is fine because
+ * catalog writes are rare compared to reads. {@link #putRows}, used after every checkout, is the cheap case: rows
+ * whose indexed columns did not change (only their stock, say) go into a copy of the row array, and the new
+ * snapshot shares every bitmap and sorted column with the old one. Returned products are shared and must be
+ * treated as read-only.
+ */
+public class ProductCatalogIndex implements ProductIndex
+{
+    private final Map<Integer, Product> rows = new TreeMap<>();
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+
+    // LOAD / MAINTAIN
+
+    @Override
+    public synchronized void rebuild(Collection<Product> products)
+    {
+        rows.clear();
+        for (Product product : products)
+        {
+            rows.put(product.getProductId(), product);
+        }
+        snapshot = Snapshot.build(rows.values());
+    }
+
+    @Override
+    public synchronized void put(Product product)
+    {
+        rows.put(product.getProductId(), product);
+        snapshot = Snapshot.build(rows.values());
+    }
+
+    // one snapshot rebuild for the whole batch
+    @Override
+    public synchronized void putAll(Collection<Product> products)
+    {
+        for (Product product : products)
+        {
+            rows.put(product.getProductId(), product);
+        }
+        snapshot = Snapshot.build(rows.values());
+    }
+
+    @Override
+    public synchronized void remove(int productId)
+    {
+        if (rows.remove(productId) != null)
+        {
+            snapshot = Snapshot.build(rows.values());
+        }
+    }
+
+    // Rows re-read after a change outside the catalog (checkout stock). Rows whose category, price and subcategory
+    // are unchanged go into a copy of the row array (one array copy, no rebuild); any other row means one rebuild.
+    public synchronized void putRows(Collection<Product> products)
+    {
+        Snapshot current = snapshot;
+        Product[] swapped = null;
+        List<Product> changed = new ArrayList<>();
+
+        for (Product product : products)
+        {
+            Integer position = current.positionById.get(product.getProductId());
+            if (position == null || !sameIndexedColumns(current.products[position], product))
+            {
+                changed.add(product);
+                continue;
+            }
+            if (swapped == null)
+            {
+                swapped = current.products.clone();
+            }
+            rows.put(product.getProductId(), product);
+            swapped[position] = product;
+        }
+
+        if (!changed.isEmpty())
+        {
+            // the rebuild reads every row from `rows`, including the swapped ones
+            putAll(changed);
+        }
+        else if (swapped != null)
+        {
+            snapshot = current.withProducts(swapped);
+        }
+    }
+
+    private static boolean sameIndexedColumns(Product indexed, Product product)
+    {
+        return indexed.getCategoryId() == product.getCategoryId()
+                && Objects.equals(indexed.getSubCategory(), product.getSubCategory())
+                && (indexed.getPrice() == null
+                        ? product.getPrice() == null
+                        : product.getPrice() != null && toCents(indexed.getPrice()) == toCents(product.getPrice()));
+    }
+
+    public int size()
+    {
+        return snapshot.products.length;
+    }
+
+
+    // QUERIES
+
+    public Product getById(int productId)
+    {
+        Snapshot current = snapshot;
+        Integer position = current.positionById.get(productId);
+        return position == null ? null : current.products[position];
+    }
+
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        return search(categoryId, null, null, null);
+    }
+
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        Snapshot current = snapshot;
+        BitSet matches = current.filter(categoryId, minPrice, maxPrice, subCategory);
+
+        List<Product> products = new ArrayList<>(matches.cardinality());
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1))
+        {
+            products.add(current.products[position]);
+        }
+        return products;
+    }
+
+    // the same matches as search, handed over one at a time: only the filter bitset is held, never a list
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        Snapshot current = snapshot;
+        BitSet matches = current.filter(categoryId, minPrice, maxPrice, subCategory);
+
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1))
+        {
+            consumer.accept(current.products[position]);
+        }
+    }
+
+    public ProductPage searchPage(ProductSearch search)
+    {
+        Snapshot current = snapshot;
+        BitSet matches = current.filter(search);
+
+        int wanted = search.getLimit() + 1;
+        ProductCursor after = search.getAfter();
+        List<Product> page = new ArrayList<>(Math.min(wanted, matches.cardinality()));
+
+        switch (search.getSort())
+        {
+            case PRODUCT_ID ->
+            {
+                // positions are already in product_id order
+                int start = after == null ? 0 : current.firstPositionAfterId(after.getProductId());
+                for (int position = matches.nextSetBit(start); position >= 0 && page.size() < wanted;
+                     position = matches.nextSetBit(position + 1))
+                {
+                    page.add(current.products[position]);
+                }
+            }
+            case PRICE ->
+            {
+                // walk the sorted price column from the cursor and keep the rows that pass the filters
+                int start = after == null ? 0 : current.firstPriceIndexAfter(after);
+                for (int i = start; i < current.positionsByPrice.length && page.size() < wanted; i++)
+                {
+                    int position = current.positionsByPrice[i];
+                    if (matches.get(position))
+                    {
+                        page.add(current.products[position]);
+                    }
+                }
+            }
+            case NAME ->
+            {
+                List<Product> sorted = new ArrayList<>(matches.cardinality());
+                for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1))
+                {
+                    Product product = current.products[position];
+                    if (after == null || compareByName(product, after.getValue(), after.getProductId()) > 0)
+                    {
+                        sorted.add(product);
+                    }
+                }
+                sorted.sort((a, b) -> compareByName(a, b.getName(), b.getProductId()));
+                page.addAll(sorted.subList(0, Math.min(wanted, sorted.size())));
+            }
+        }
+
+        return ProductPage.fromLookahead(page, search);
+    }
+
+    public ProductFacets facets(ProductSearch search, BigDecimal priceStep)
+    {
+        Snapshot current = snapshot;
+        BitSet matches = current.filter(search);
+        ProductFacets facets = new ProductFacets(priceStep);
+
+        // category counts are plain bitmap intersections
+        for (Map.Entry<Integer, BitSet> category : current.categoryBitmaps.entrySet())
+        {
+            BitSet inCategory = (BitSet) category.getValue().clone();
+            inCategory.and(matches);
+            int count = inCategory.cardinality();
+            if (count > 0)
+            {
+                facets.countCategory(category.getKey(), count);
+            }
+        }
+
+        // subcategory codes and price buckets are counted in one pass over the matching rows
+        long stepCents = toCents(priceStep);
+        int[] subCategoryCounts = new int[current.subCategoryLabels.length];
+        Map<Long, Long> bucketCounts = new HashMap<>();
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1))
+        {
+            int code = current.subCategoryCodes[position];
+            if (code >= 0)
+            {
+                subCategoryCounts[code]++;
+            }
+            bucketCounts.merge(Math.floorDiv(current.priceCents[position], stepCents), 1L, Long::sum);
+        }
+
+        for (int code = 0; code < subCategoryCounts.length; code++)
+        {
+            if (subCategoryCounts[code] > 0)
+            {
+                facets.countSubCategory(current.subCategoryLabels[code], subCategoryCounts[code]);
+            }
+        }
+        bucketCounts.forEach(facets::countPriceBucket);
+
+        return facets;
+    }
+
+    // mirrors ORDER BY name, product_id under a case-insensitive collation
+    private static int compareByName(Product product, String name, int productId)
+    {
+        String left = product.getName() == null ? "" : product.getName();
+        String right = name == null ? "" : name;
+        int byName = String.CASE_INSENSITIVE_ORDER.compare(left, right);
+        return byName != 0 ? byName : Integer.compare(product.getProductId(), productId);
+    }
+
+
+    // PRICE HELPERS
+
+    static long toCents(BigDecimal price)
+    {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+
+    // SNAPSHOT
+
+    private static final class Snapshot
+    {
+        private final Product[] products;
+        private final Map<Integer, Integer> positionById;
+        private final Map<Integer, BitSet> categoryBitmaps;
+        private final long[] sortedPriceCents;
+        private final int[] positionsByPrice;
+        private final String[] subCategoryDictionary;
+        private final String[] subCategoryLabels;
+        private final int[] subCategoryCodes;
+        private final long[] priceCents;
+
+        private Snapshot(Product[] products, Map<Integer, Integer> positionById, Map<Integer, BitSet> categoryBitmaps,
+                         long[] sortedPriceCents, int[] positionsByPrice, String[] subCategoryDictionary,
+                         String[] subCategoryLabels, int[] subCategoryCodes, long[] priceCents)
+        {
+            this.products = products;
+            this.positionById = positionById;
+            this.categoryBitmaps = categoryBitmaps;
+            this.sortedPriceCents = sortedPriceCents;
+            this.positionsByPrice = positionsByPrice;
+            this.subCategoryDictionary = subCategoryDictionary;
+            this.subCategoryLabels = subCategoryLabels;
+            this.subCategoryCodes = subCategoryCodes;
+            this.priceCents = priceCents;
+        }
+
+        // the same snapshot with other copies of its rows; only valid when no indexed column changed
+        Snapshot withProducts(Product[] replaced)
+        {
+            return new Snapshot(replaced, positionById, categoryBitmaps, sortedPriceCents, positionsByPrice,
+                    subCategoryDictionary, subCategoryLabels, subCategoryCodes, priceCents);
+        }
+
+        static Snapshot build(Collection<Product> source)
+        {
+            int size = source.size();
+            Product[] products = source.toArray(new Product[0]);
+            Map<Integer, Integer> positionById = new HashMap<>(size * 2);
+            Map<Integer, BitSet> categoryBitmaps = new HashMap<>();
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> dictionaryValues = new ArrayList<>();
+            List<String> dictionaryLabels = new ArrayList<>();
+            int[] subCategoryCodes = new int[size];
+            long[] priceCents = new long[size];
+
+            for (int position = 0; position < size; position++)
+            {
+                Product product = products[position];
+                positionById.put(product.getProductId(), position);
+                categoryBitmaps.computeIfAbsent(product.getCategoryId(), id -> new BitSet(size)).set(position);
+                priceCents[position] = product.getPrice() == null ? 0 : toCents(product.getPrice());
+
+                String subCategory = product.getSubCategory() == null
+                        ? null
+                        : product.getSubCategory().toLowerCase(Locale.ROOT);
+                if (subCategory == null)
+                {
+                    subCategoryCodes[position] = -1;
+                }
+                else
+                {
+                    subCategoryCodes[position] = dictionary.computeIfAbsent(subCategory, value -> {
+                        dictionaryValues.add(value);
+                        dictionaryLabels.add(product.getSubCategory());
+                        return dictionaryValues.size() - 1;
+                    });
+                }
+            }
+
+            // sort positions by (price, position) so price ranges become a contiguous slice
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++)
+            {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byPrice = Long.compare(priceCents[a], priceCents[b]);
+                return byPrice != 0 ? byPrice : Integer.compare(a, b);
+            });
+
+            long[] sortedPriceCents = new long[size];
+            int[] positionsByPrice = new int[size];
+            for (int i = 0; i < size; i++)
+            {
+                positionsByPrice[i] = order[i];
+                sortedPriceCents[i] = priceCents[order[i]];
+            }
+
+            return new Snapshot(products, positionById, categoryBitmaps, sortedPriceCents, positionsByPrice,
+                    dictionaryValues.toArray(new String[0]), dictionaryLabels.toArray(new String[0]),
+                    subCategoryCodes, priceCents);
+        }
+
+        BitSet filter(ProductSearch search)
+        {
+            BitSet matches = filter(search.getCategoryId(), search.getMinPrice(),
+                    search.getMaxPrice(), search.getSubCategory());
+
+            if (search.getProductIds() != null)
+            {
+                BitSet allowed = new BitSet(products.length);
+                for (int productId : search.getProductIds())
+                {
+                    Integer position = positionById.get(productId);
+                    if (position != null)
+                    {
+                        allowed.set(position);
+                    }
+                }
+                matches.and(allowed);
+            }
+
+            return matches;
+        }
+
+        BitSet filter(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+        {
+            int size = products.length;
+            BitSet matches;
+
+            if (categoryId != null)
+            {
+                BitSet bitmap = categoryBitmaps.get(categoryId);
+                if (bitmap == null)
+                {
+                    return new BitSet();
+                }
+                matches = (BitSet) bitmap.clone();
+            }
+            else
+            {
+                matches = new BitSet(size);
+                matches.set(0, size);
+            }
+
+            if (minPrice != null || maxPrice != null)
+            {
+                int from = minPrice == null
+                        ? 0
+                        : lowerBound(sortedPriceCents, minPrice.setScale(2, RoundingMode.CEILING).unscaledValue().longValueExact());
+                int to = maxPrice == null
+                        ? size
+                        : lowerBound(sortedPriceCents, maxPrice.setScale(2, RoundingMode.FLOOR).unscaledValue().longValueExact() + 1);
+
+                BitSet inRange = new BitSet(size);
+                for (int i = from; i < to; i++)
+                {
+                    inRange.set(positionsByPrice[i]);
+                }
+                matches.and(inRange);
+            }
+
+            if (subCategory != null && !subCategory.isBlank())
+            {
+                // same semantics as "subcategory LIKE '%x%'" under a case-insensitive collation
+                String needle = subCategory.toLowerCase(Locale.ROOT);
+                boolean[] codeMatches = new boolean[subCategoryDictionary.length];
+                for (int code = 0; code < subCategoryDictionary.length; code++)
+                {
+                    codeMatches[code] = subCategoryDictionary[code].contains(needle);
+                }
+
+                for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1))
+                {
+                    int code = subCategoryCodes[position];
+                    if (code < 0 || !codeMatches[code])
+                    {
+                        matches.clear(position);
+                    }
+                }
+            }
+
+            return matches;
+        }
+
+        int firstPositionAfterId(int productId)
+        {
+            int low = 0;
+            int high = products.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (products[mid].getProductId() <= productId)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int firstPriceIndexAfter(ProductCursor after)
+        {
+            long cents = toCents(after.getPriceValue());
+            int index = lowerBound(sortedPriceCents, cents);
+            while (index < sortedPriceCents.length
+                    && sortedPriceCents[index] == cents
+                    && products[positionsByPrice[index]].getProductId() <= after.getProductId())
+            {
+                index++;
+            }
+            return index;
+        }
+
+        private static int lowerBound(long[] values, long key)
+        {
+            int low = 0;
+            int high = values.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
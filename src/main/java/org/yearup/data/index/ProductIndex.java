@@ -0,0 +1,14 @@
+package org.yearup.data.index;
+
+import org.yearup.models.Product;
+
+import java.util.Collection;
+
+// An in-memory structure derived from the products table and kept current by IndexedProductDao
+public interface ProductIndex
+{
+    void rebuild(Collection<Product> products);
+    void put(Product product);
+    void putAll(Collection<Product> products);
+    void remove(int productId);
+}
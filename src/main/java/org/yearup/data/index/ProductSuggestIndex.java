@@ -0,0 +1,265 @@
+package org.yearup.data.index;
+
+import org.yearup.models.Product;
+import org.yearup.models.ProductSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sorted-prefix structure for typeahead over product names and subcategories.
+ *
+ * Every distinct suggestion gets a rank at build time (featured products first, then alphabetical), so a lookup
+ * only compares ints. Keys are the lower-cased text and every word start inside it ("women's jeans", "jeans"),
+ * stored in one sorted array; a prefix is a contiguous slice found by binary search. One- and two-character
+ * prefixes match too many keys to scan, so their top {@value #MAX_SUGGESTIONS} are precomputed.
+ *
+ * Like {@link ProductCatalogIndex}, writers rebuild an immutable snapshot and readers never lock.
+ */
+public class ProductSuggestIndex implements ProductIndex
+{
+    public static final int MAX_SUGGESTIONS = 20;
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+
+    private final Map<Integer, Product> products = new HashMap<>();
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+
+    // LOAD / MAINTAIN
+
+    @Override
+    public synchronized void rebuild(Collection<Product> source)
+    {
+        products.clear();
+        for (Product product : source)
+        {
+            products.put(product.getProductId(), product);
+        }
+        snapshot = Snapshot.build(products.values());
+    }
+
+    @Override
+    public synchronized void put(Product product)
+    {
+        products.put(product.getProductId(), product);
+        snapshot = Snapshot.build(products.values());
+    }
+
+    // one snapshot rebuild for the whole batch
+    @Override
+    public synchronized void putAll(Collection<Product> batch)
+    {
+        for (Product product : batch)
+        {
+            products.put(product.getProductId(), product);
+        }
+        snapshot = Snapshot.build(products.values());
+    }
+
+    @Override
+    public synchronized void remove(int productId)
+    {
+        if (products.remove(productId) != null)
+        {
+            snapshot = Snapshot.build(products.values());
+        }
+    }
+
+
+    // QUERY
+
+    public List<ProductSuggestion> suggest(String prefix, int limit)
+    {
+        if (prefix == null || prefix.isBlank() || limit <= 0)
+        {
+            return List.of();
+        }
+
+        Snapshot current = snapshot;
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        int wanted = Math.min(limit, MAX_SUGGESTIONS);
+
+        int[] ranks;
+        int count;
+        if (key.length() <= PRECOMPUTED_PREFIX_LENGTH)
+        {
+            ranks = current.shortPrefixes.getOrDefault(key, new int[0]);
+            count = Math.min(ranks.length, wanted);
+        }
+        else
+        {
+            ranks = new int[wanted];
+            count = 0;
+            for (int i = current.lowerBound(key); i < current.keys.length && current.keys[i].startsWith(key); i++)
+            {
+                count = offer(ranks, count, current.keyRanks[i]);
+            }
+        }
+
+        List<ProductSuggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            suggestions.add(current.suggestions[ranks[i]]);
+        }
+        return suggestions;
+    }
+
+    // keeps the smallest distinct ranks in top[0..count), sorted ascending; returns the new count
+    private static int offer(int[] top, int count, int rank)
+    {
+        if (count == top.length && rank >= top[count - 1])
+        {
+            return count;
+        }
+
+        int index = Arrays.binarySearch(top, 0, count, rank);
+        if (index >= 0)
+        {
+            return count;
+        }
+
+        index = -index - 1;
+        int last = Math.min(count, top.length - 1);
+        System.arraycopy(top, index, top, index + 1, last - index);
+        top[index] = rank;
+        return Math.min(count + 1, top.length);
+    }
+
+
+    // SNAPSHOT
+
+    private static final class Snapshot
+    {
+        private final ProductSuggestion[] suggestions;
+        private final String[] keys;
+        private final int[] keyRanks;
+        private final Map<String, int[]> shortPrefixes;
+
+        private Snapshot(ProductSuggestion[] suggestions, String[] keys, int[] keyRanks, Map<String, int[]> shortPrefixes)
+        {
+            this.suggestions = suggestions;
+            this.keys = keys;
+            this.keyRanks = keyRanks;
+            this.shortPrefixes = shortPrefixes;
+        }
+
+        static Snapshot build(Collection<Product> products)
+        {
+            // one candidate per distinct (type, text); a name is featured if any product with it is
+            Map<String, Candidate> candidates = new HashMap<>();
+            for (Product product : products)
+            {
+                if (product.getName() != null && !product.getName().isBlank())
+                {
+                    candidates.computeIfAbsent(ProductSuggestion.PRODUCT + ":" + product.getName(),
+                            k -> new Candidate(product.getName(), ProductSuggestion.PRODUCT)).featured |= product.isFeatured();
+                }
+                if (product.getSubCategory() != null && !product.getSubCategory().isBlank())
+                {
+                    candidates.computeIfAbsent(ProductSuggestion.SUBCATEGORY + ":" + product.getSubCategory(),
+                            k -> new Candidate(product.getSubCategory(), ProductSuggestion.SUBCATEGORY));
+                }
+            }
+
+            List<Candidate> ranked = new ArrayList<>(candidates.values());
+            ranked.sort(Comparator.comparing((Candidate c) -> !c.featured)
+                                  .thenComparing(c -> c.text, String.CASE_INSENSITIVE_ORDER)
+                                  .thenComparing(c -> c.type));
+
+            ProductSuggestion[] suggestions = new ProductSuggestion[ranked.size()];
+            List<Object[]> entries = new ArrayList<>();
+            for (int rank = 0; rank < ranked.size(); rank++)
+            {
+                Candidate candidate = ranked.get(rank);
+                suggestions[rank] = new ProductSuggestion(candidate.text, candidate.type);
+
+                String lower = candidate.text.toLowerCase(Locale.ROOT);
+                for (int start = 0; start >= 0; start = nextWordStart(lower, start))
+                {
+                    entries.add(new Object[]{lower.substring(start), rank});
+                }
+            }
+
+            entries.sort((a, b) -> {
+                int byKey = ((String) a[0]).compareTo((String) b[0]);
+                return byKey != 0 ? byKey : Integer.compare((int) a[1], (int) b[1]);
+            });
+
+            String[] keys = new String[entries.size()];
+            int[] keyRanks = new int[entries.size()];
+            Map<String, int[]> topByPrefix = new HashMap<>();
+            Map<String, Integer> topCounts = new HashMap<>();
+            for (int i = 0; i < keys.length; i++)
+            {
+                keys[i] = (String) entries.get(i)[0];
+                keyRanks[i] = (int) entries.get(i)[1];
+
+                for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH && length <= keys[i].length(); length++)
+                {
+                    String prefix = keys[i].substring(0, length);
+                    int[] top = topByPrefix.computeIfAbsent(prefix, p -> new int[MAX_SUGGESTIONS]);
+                    topCounts.put(prefix, offer(top, topCounts.getOrDefault(prefix, 0), keyRanks[i]));
+                }
+            }
+
+            Map<String, int[]> shortPrefixes = new HashMap<>();
+            for (Map.Entry<String, int[]> entry : topByPrefix.entrySet())
+            {
+                shortPrefixes.put(entry.getKey(), Arrays.copyOf(entry.getValue(), topCounts.get(entry.getKey())));
+            }
+
+            return new Snapshot(suggestions, keys, keyRanks, shortPrefixes);
+        }
+
+        int lowerBound(String key)
+        {
+            int low = 0;
+            int high = keys.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // index of the next character that starts a word after whitespace, or -1
+        private static int nextWordStart(String text, int from)
+        {
+            for (int i = from + 1; i < text.length(); i++)
+            {
+                if (Character.isWhitespace(text.charAt(i - 1)) && !Character.isWhitespace(text.charAt(i)))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Candidate
+    {
+        private final String text;
+        private final String type;
+        private boolean featured;
+
+        Candidate(String text, String type)
+        {
+            this.text = text;
+            this.type = type;
+        }
+    }
+}
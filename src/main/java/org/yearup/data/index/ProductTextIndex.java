@@ -0,0 +1,469 @@
+package org.yearup.data.index;
+
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product name and description.
+ *
+ * Text is lower-cased and split on anything that is not a letter or digit. Each term owns a posting list of
+ * product ids (sorted, in a primitive int array) with a parallel array of weights: a hit in the name counts
+ * {@value #NAME_WEIGHT}, a hit in the description counts 1. The term dictionary is sorted, so every query token
+ * also matches the terms it is a prefix of; exact term matches score double.
+ *
+ * Query tokens are ANDed: a product must match every token. Results are ranked by total score, then product_id.
+ */
+public class ProductTextIndex implements ProductIndex
+{
+    static final int NAME_WEIGHT = 3;
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    private final NavigableMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<Integer, String[]> termsByProduct = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    // LOAD / MAINTAIN
+
+    @Override
+    public void rebuild(Collection<Product> products)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            dictionary.clear();
+            termsByProduct.clear();
+            for (Product product : products)
+            {
+                add(product);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Product product)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeTerms(product.getProductId());
+            add(product);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Collection<Product> products)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for (Product product : products)
+            {
+                removeTerms(product.getProductId());
+                add(product);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int productId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeTerms(productId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Product product)
+    {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(product.getName()))
+        {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(product.getDescription()))
+        {
+            weights.merge(term, 1, Integer::sum);
+        }
+
+        int productId = product.getProductId();
+        for (Map.Entry<String, Integer> entry : weights.entrySet())
+        {
+            dictionary.computeIfAbsent(entry.getKey(), term -> new Postings()).add(productId, entry.getValue());
+        }
+        termsByProduct.put(productId, weights.keySet().toArray(new String[0]));
+    }
+
+    private void removeTerms(int productId)
+    {
+        String[] terms = termsByProduct.remove(productId);
+        if (terms == null)
+        {
+            return;
+        }
+
+        for (String term : terms)
+        {
+            Postings postings = dictionary.get(term);
+            if (postings != null && postings.remove(productId) && postings.size == 0)
+            {
+                dictionary.remove(term);
+            }
+        }
+    }
+
+
+    // QUERY
+
+    /**
+     * Returns up to maxResults product ids, best match first. An empty array means nothing matched.
+     */
+    public int[] search(String query, int maxResults)
+    {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || maxResults <= 0)
+        {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            long[] matches = matchAll(tokens);
+            return matches.length == 0 ? new int[0] : topByScore(matches, maxResults);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every product id matching the query in id order, without ranking them.
+     */
+    public int[] matchingIds(String query)
+    {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty())
+        {
+            return new int[0];
+        }
+
+        long[] matches;
+        lock.readLock().lock();
+        try
+        {
+            matches = matchAll(tokens);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        int[] ids = new int[matches.length];
+        for (int i = 0; i < matches.length; i++)
+        {
+            ids[i] = id(matches[i]);
+        }
+        return ids;
+    }
+
+    public int termCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return dictionary.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    // AND the tokens together by intersecting their id-sorted matches
+    private long[] matchAll(List<String> tokens)
+    {
+        long[] matches = null;
+        for (String token : tokens)
+        {
+            long[] tokenMatches = matchToken(token);
+            matches = matches == null ? tokenMatches : intersect(matches, tokenMatches);
+            if (matches.length == 0)
+            {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    // (productId << 32 | score) for every product matching the token, sorted by product id, one entry per product
+    private long[] matchToken(String token)
+    {
+        Postings exact = dictionary.get(token);
+        NavigableMap<String, Postings> expansions = token.length() >= MIN_PREFIX_LENGTH
+                ? dictionary.subMap(token, false, token + Character.MAX_VALUE, false)
+                : new TreeMap<>();
+
+        // every term under the prefix: a cap would drop whichever terms sort last, not the least useful ones
+        int total = exact == null ? 0 : exact.size;
+        for (Postings postings : expansions.values())
+        {
+            total += postings.size;
+        }
+
+        long[] packed = new long[total];
+        int count = 0;
+        if (exact != null)
+        {
+            for (int i = 0; i < exact.size; i++)
+            {
+                packed[count++] = pack(exact.ids[i], exact.weights[i] * 2);
+            }
+        }
+        for (Postings postings : expansions.values())
+        {
+            for (int i = 0; i < postings.size; i++)
+            {
+                packed[count++] = pack(postings.ids[i], postings.weights[i]);
+            }
+        }
+
+        // a single posting list is already sorted by id, one entry per product
+        if (expansions.isEmpty() || (exact == null && expansions.size() == 1))
+        {
+            return packed;
+        }
+
+        // sorted by id then score; keep the best score per product (the last entry of each id run)
+        Arrays.sort(packed);
+        int unique = 0;
+        for (int i = 0; i < packed.length; i++)
+        {
+            if (i + 1 < packed.length && id(packed[i + 1]) == id(packed[i]))
+            {
+                continue;
+            }
+            packed[unique++] = packed[i];
+        }
+        return Arrays.copyOf(packed, unique);
+    }
+
+    private static long[] intersect(long[] left, long[] right)
+    {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length)
+        {
+            int leftId = id(left[i]);
+            int rightId = id(right[j]);
+            if (leftId < rightId)
+            {
+                i++;
+            }
+            else if (leftId > rightId)
+            {
+                j++;
+            }
+            else
+            {
+                result[count++] = pack(leftId, score(left[i]) + score(right[j]));
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] topByScore(long[] matches, int maxResults)
+    {
+        // min-heap of (score << 32 | MAX - id) keeps the best maxResults entries without boxing
+        long[] heap = new long[Math.min(maxResults, matches.length)];
+        int size = 0;
+        for (long match : matches)
+        {
+            long rank = ((long) score(match) << 32) | (Integer.MAX_VALUE - id(match));
+            if (size < heap.length)
+            {
+                heap[size] = rank;
+                siftUp(heap, size++);
+            }
+            else if (rank > heap[0])
+            {
+                heap[0] = rank;
+                siftDown(heap, size);
+            }
+        }
+
+        int[] ids = new int[size];
+        while (size > 0)
+        {
+            ids[size - 1] = Integer.MAX_VALUE - (int) heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+        }
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int index)
+    {
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index])
+            {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = swap;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size)
+    {
+        int index = 0;
+        while (true)
+        {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest])
+            {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest])
+            {
+                smallest = right;
+            }
+            if (smallest == index)
+            {
+                return;
+            }
+            long swap = heap[smallest];
+            heap[smallest] = heap[index];
+            heap[index] = swap;
+            index = smallest;
+        }
+    }
+
+    private static long pack(int productId, int score)
+    {
+        return ((long) productId << 32) | (score & 0xffffffffL);
+    }
+
+    private static int id(long packed)
+    {
+        return (int) (packed >>> 32);
+    }
+
+    private static int score(long packed)
+    {
+        return (int) packed;
+    }
+
+
+    // TOKENIZER
+
+    public static List<String> tokenize(String text)
+    {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+        {
+            return tokens;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++)
+        {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0)
+            {
+                start = i;
+            }
+            else if (!wordChar && start >= 0)
+            {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+
+    // POSTING LIST
+
+    private static final class Postings
+    {
+        private int[] ids = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        void add(int productId, int weight)
+        {
+            int index = Arrays.binarySearch(ids, 0, size, productId);
+            if (index >= 0)
+            {
+                weights[index] = weight;
+                return;
+            }
+
+            index = -index - 1;
+            if (size == ids.length)
+            {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            ids[index] = productId;
+            weights[index] = weight;
+            size++;
+        }
+
+        boolean remove(int productId)
+        {
+            int index = Arrays.binarySearch(ids, 0, size, productId);
+            if (index < 0)
+            {
+                return false;
+            }
+
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
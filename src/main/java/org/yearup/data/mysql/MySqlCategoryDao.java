@@ -4,6 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.CategoryDao;
+import org.yearup.data.VersionStamps;
 import org.yearup.models.Category;
 
 import javax.sql.DataSource;
@@ -14,6 +15,8 @@ import java.util.List;
 @Component
 public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
 {
+    private final VersionStamps versions = new VersionStamps();
+
     public MySqlCategoryDao(DataSource dataSource)
     {
         super(dataSource);
@@ -115,6 +118,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                 if (keys.next())
                 {
                     category.setCategoryId(keys.getInt(1));
+                    versions.bump(category.getCategoryId());
                 }
             }
         }
@@ -153,6 +157,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                         "Cannot update — category not found with id: " + categoryId);
             }
 
+            versions.bump(categoryId);
             category.setCategoryId(categoryId);
             return category;
         }
@@ -182,6 +187,8 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Cannot delete — category not found with id: " + categoryId);
             }
+
+            versions.bump(categoryId);
         }
         catch (SQLException e)
         {
@@ -190,6 +197,21 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao
     }
 
 
+    // VERSION STAMPS (ETAGS)
+
+    @Override
+    public long version()
+    {
+        return versions.current();
+    }
+
+    @Override
+    public long version(int categoryId)
+    {
+        return versions.of(categoryId);
+    }
+
+
     // MAP RESULTSET → CATEGORY OBJECT
 
     private Category mapRow(ResultSet rs) throws SQLException
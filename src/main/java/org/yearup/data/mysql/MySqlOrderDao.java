@@ -0,0 +1,503 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CheckoutResult;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderPage;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+@Component
+public class MySqlOrderDao extends MySqlDaoBase implements OrderDao
+{
+    private final MySqlStockShards stockShards;
+
+    @Autowired
+    public MySqlOrderDao(DataSource dataSource, MySqlStockShards stockShards)
+    {
+        super(dataSource);
+        this.stockShards = stockShards;
+    }
+
+
+    // CHECKOUT (ONE CONNECTION, ONE TRANSACTION)
+
+    @Override
+    public Order checkout(int userId)
+    {
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                Order order = checkout(connection, userId);
+                connection.commit();
+                return order;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error checking out", e);
+        }
+    }
+
+
+    // CHECKOUT A GROUP (ONE TRANSACTION, ONE SAVEPOINT PER ORDER, ONE COMMIT)
+
+    @Override
+    public List<CheckoutResult> checkoutAll(List<Integer> userIds)
+    {
+        List<CheckoutResult> results = new ArrayList<>(userIds.size());
+
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                for (Integer userId : userIds)
+                {
+                    // a checkout that fails is undone on its own; the rest of the group still commits
+                    Savepoint savepoint = connection.setSavepoint();
+                    try
+                    {
+                        Order order = checkout(connection, userId);
+                        results.add(order == null
+                                ? CheckoutResult.failed(new IllegalStateException("The cart is empty."))
+                                : CheckoutResult.created(order));
+                    }
+                    catch (InsufficientStockException | IllegalStateException e)
+                    {
+                        connection.rollback(savepoint);
+                        results.add(CheckoutResult.failed(e));
+                    }
+                    connection.releaseSavepoint(savepoint);
+                }
+
+                connection.commit();
+                return results;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error checking out a group of orders", e);
+        }
+    }
+
+    // One user's checkout inside the caller's transaction; null when the cart is empty
+    private Order checkout(Connection connection, int userId) throws SQLException
+    {
+        List<OrderLineItem> lines = lockCart(connection, userId);
+        if (lines.isEmpty())
+        {
+            return null;
+        }
+
+        // counted from the stock update to the end of the checkout, which is roughly how long the stock rows stay locked
+        List<Integer> productIds = new ArrayList<>(lines.size());
+        for (OrderLineItem line : lines)
+        {
+            productIds.add(line.getProductId());
+        }
+        stockShards.enter(productIds);
+
+        try
+        {
+            List<Integer> shortOf = decrementStock(connection, lines);
+            if (!shortOf.isEmpty())
+            {
+                throw new InsufficientStockException(shortOf);
+            }
+
+            Order order = insertOrder(connection, userId);
+            if (order == null)
+            {
+                throw new IllegalStateException("A profile with a shipping address is required to check out.");
+            }
+
+            insertLineItems(connection, order.getOrderId(), lines);
+            order.setLineItems(lines);
+
+            try (PreparedStatement clear = connection.prepareStatement("DELETE FROM shopping_cart WHERE user_id = ?"))
+            {
+                clear.setInt(1, userId);
+                clear.executeUpdate();
+            }
+
+            return order;
+        }
+        finally
+        {
+            stockShards.exit(productIds);
+        }
+    }
+
+    // The cart with current prices, in product id order. Only the cart rows are locked (a second checkout of the
+    // same cart waits here, then finds it empty); product rows are locked by the stock update, in id order.
+    private static List<OrderLineItem> lockCart(Connection connection, int userId) throws SQLException
+    {
+        String sql = """
+                SELECT c.product_id, c.quantity, p.price
+                FROM shopping_cart c
+                JOIN products p ON p.product_id = c.product_id
+                WHERE c.user_id = ?
+                ORDER BY c.product_id
+                FOR UPDATE OF c
+                """;
+
+        List<OrderLineItem> lines = new ArrayList<>();
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, userId);
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    lines.add(new OrderLineItem(0, 0, rs.getInt("product_id"), rs.getBigDecimal("price"),
+                            rs.getInt("quantity"), BigDecimal.ZERO));
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    // One batched conditional decrement (hot products take from their stock shards instead); returns the products
+    // that did not have enough stock
+    private List<Integer> decrementStock(Connection connection, List<OrderLineItem> lines) throws SQLException
+    {
+        // a product promoted to shards after isSharded was asked is not decremented here; it is retried on its shards
+        String sql = """
+                UPDATE products SET stock = stock - ?
+                WHERE product_id = ? AND stock >= ?
+                AND NOT EXISTS (SELECT 1 FROM product_stock_shards s WHERE s.product_id = ?)
+                """;
+
+        List<Integer> shortOf = new ArrayList<>();
+        List<OrderLineItem> batched = new ArrayList<>(lines.size());
+
+        for (OrderLineItem line : lines)
+        {
+            if (!stockShards.isSharded(line.getProductId()))
+            {
+                batched.add(line);
+            }
+            else if (!stockShards.take(connection, line.getProductId(), line.getQuantity()))
+            {
+                shortOf.add(line.getProductId());
+            }
+        }
+
+        if (batched.isEmpty())
+        {
+            return shortOf;
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            for (OrderLineItem line : batched)
+            {
+                stmt.setInt(1, line.getQuantity());
+                stmt.setInt(2, line.getProductId());
+                stmt.setInt(3, line.getQuantity());
+                stmt.setInt(4, line.getProductId());
+                stmt.addBatch();
+            }
+
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++)
+            {
+                OrderLineItem line = batched.get(i);
+                if (counts[i] == 0
+                        && !(stockShards.inUse() && stockShards.take(connection, line.getProductId(), line.getQuantity())))
+                {
+                    shortOf.add(line.getProductId());
+                }
+            }
+        }
+
+        return shortOf;
+    }
+
+    // The shipping address is copied from the profile in the same statement; null when there is no profile
+    private static Order insertOrder(Connection connection, int userId) throws SQLException
+    {
+        String sql = """
+                INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount)
+                SELECT user_id, ?, LEFT(address, 100), city, state, zip, 0
+                FROM profiles
+                WHERE user_id = ?
+                """;
+
+        LocalDateTime date = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setTimestamp(1, Timestamp.valueOf(date));
+            stmt.setInt(2, userId);
+
+            if (stmt.executeUpdate() == 0)
+            {
+                return null;
+            }
+
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                keys.next();
+                Order order = new Order(keys.getInt(1), userId, date, null, null, null, null, BigDecimal.ZERO);
+                readAddress(connection, order);
+                return order;
+            }
+        }
+    }
+
+    private static void readAddress(Connection connection, Order order) throws SQLException
+    {
+        String sql = "SELECT address, city, state, zip FROM orders WHERE order_id = ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, order.getOrderId());
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                if (rs.next())
+                {
+                    order.setAddress(rs.getString("address"));
+                    order.setCity(rs.getString("city"));
+                    order.setState(rs.getString("state"));
+                    order.setZip(rs.getString("zip"));
+                }
+            }
+        }
+    }
+
+    private static void insertLineItems(Connection connection, int orderId, List<OrderLineItem> lines) throws SQLException
+    {
+        String sql = """
+                INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            // with rewriteBatchedStatements the driver sends the batch as multi-row INSERTs
+            for (OrderLineItem line : lines)
+            {
+                line.setOrderId(orderId);
+                stmt.setInt(1, orderId);
+                stmt.setInt(2, line.getProductId());
+                stmt.setBigDecimal(3, line.getSalesPrice());
+                stmt.setInt(4, line.getQuantity());
+                stmt.setBigDecimal(5, line.getDiscount());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                for (int i = 0; i < lines.size() && keys.next(); i++)
+                {
+                    lines.get(i).setOrderLineItemId(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+
+    // GET ORDERS (KEYSET PAGE, NEWEST FIRST)
+
+    @Override
+    public OrderPage getPage(int userId, Integer after, int limit)
+    {
+        // orders(user_id) is the user_id foreign key index, which also holds order_id, so this reads only the page
+        String sql = """
+                SELECT order_id, user_id, date, address, city, state, zip, shipping_amount
+                FROM orders
+                WHERE user_id = ? AND order_id < ?
+                ORDER BY order_id DESC
+                LIMIT ?
+                """;
+
+        List<Order> orders = new ArrayList<>();
+
+        try (Connection connection = getConnection())
+        {
+            try (PreparedStatement stmt = connection.prepareStatement(sql))
+            {
+                stmt.setInt(1, userId);
+                stmt.setInt(2, after == null ? Integer.MAX_VALUE : after);
+                // one extra row to learn whether there is a next page
+                stmt.setInt(3, limit + 1);
+
+                try (ResultSet rs = stmt.executeQuery())
+                {
+                    while (rs.next())
+                    {
+                        orders.add(mapOrder(rs));
+                    }
+                }
+            }
+
+            OrderPage page = OrderPage.fromLookahead(orders, limit);
+            loadLineItems(connection, page.getOrders());
+            return page;
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error loading orders", e);
+        }
+    }
+
+    // the line items of the whole page in one query, instead of one query per order
+    private static void loadLineItems(Connection connection, List<Order> orders) throws SQLException
+    {
+        if (orders.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, Order> byId = new HashMap<>();
+        StringBuilder sql = new StringBuilder("""
+                SELECT order_line_item_id, order_id, product_id, sales_price, quantity, discount
+                FROM order_line_items
+                WHERE order_id IN (""");
+        for (int i = 0; i < orders.size(); i++)
+        {
+            sql.append(i == 0 ? "?" : ", ?");
+            byId.put(orders.get(i).getOrderId(), orders.get(i));
+        }
+        sql.append(") ORDER BY order_id, order_line_item_id");
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString()))
+        {
+            for (int i = 0; i < orders.size(); i++)
+            {
+                stmt.setInt(i + 1, orders.get(i).getOrderId());
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    OrderLineItem item = mapLineItem(rs);
+                    byId.get(item.getOrderId()).getLineItems().add(item);
+                }
+            }
+        }
+    }
+
+
+    // STREAM LINE ITEMS (CONSTANT MEMORY)
+
+    @Override
+    public void streamLineItems(Integer userId, BiConsumer<Order, OrderLineItem> consumer)
+    {
+        // ordered by order_id only, so MySQL walks orders by primary key and needs no sort buffer for the join
+        StringBuilder sql = new StringBuilder("""
+                SELECT o.order_id, o.user_id, o.date, o.address, o.city, o.state, o.zip, o.shipping_amount,
+                       li.order_line_item_id, li.product_id, li.sales_price, li.quantity, li.discount
+                FROM orders o
+                JOIN order_line_items li ON li.order_id = o.order_id
+                """);
+        if (userId != null)
+        {
+            sql.append(" WHERE o.user_id = ?");
+        }
+        sql.append(" ORDER BY o.order_id");
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+        {
+            // Connector/J only streams row by row (instead of buffering the whole result) with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            if (userId != null)
+            {
+                stmt.setInt(1, userId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                Order order = null;
+                while (rs.next())
+                {
+                    if (order == null || order.getOrderId() != rs.getInt("order_id"))
+                    {
+                        order = mapOrder(rs);
+                    }
+                    consumer.accept(order, mapLineItem(rs));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error streaming order line items", e);
+        }
+    }
+
+    private static Order mapOrder(ResultSet row) throws SQLException
+    {
+        return new Order(row.getInt("order_id"),
+                row.getInt("user_id"),
+                row.getTimestamp("date").toLocalDateTime(),
+                row.getString("address"),
+                row.getString("city"),
+                row.getString("state"),
+                row.getString("zip"),
+                row.getBigDecimal("shipping_amount"));
+    }
+
+    private static OrderLineItem mapLineItem(ResultSet row) throws SQLException
+    {
+        return new OrderLineItem(row.getInt("order_line_item_id"),
+                row.getInt("order_id"),
+                row.getInt("product_id"),
+                row.getBigDecimal("sales_price"),
+                row.getInt("quantity"),
+                row.getBigDecimal("discount"));
+    }
+}
@@ -2,17 +2,41 @@ package org.yearup.data.mysql;
 
 import org.springframework.stereotype.Component;
 import org.yearup.data.ProductDao;
+import org.yearup.data.VersionStamps;
 import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSort;
+import org.yearup.models.ProductSuggestion;
+import org.yearup.models.ProductUpdate;
+import org.yearup.models.ProductUpdateResult;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Component
 public class MySqlProductDao extends MySqlDaoBase implements ProductDao
 {
+    // keeps each IN (...) list, and the statement built from it, a reasonable size
+    static final int GET_BY_IDS_CHUNK_SIZE = 500;
+    // rows per transaction for bulk partial updates
+    static final int UPDATE_BATCH_CHUNK_SIZE = 1000;
+
+    private final VersionStamps versions = new VersionStamps();
+
     public MySqlProductDao(DataSource dataSource)
     {
         super(dataSource);
@@ -40,34 +64,94 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
         List<Object> params = new ArrayList<>();
 
         // Apply filters only if provided
-        if (categoryId != null)
+        appendFilters(sql, params, categoryId, minPrice, maxPrice, subCategory);
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString()))
         {
-            sql.append(" AND category_id = ?");
-            params.add(categoryId);
+            // Bind parameters in order
+            for (int i = 0; i < params.size(); i++)
+            {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    products.add(mapRow(rs));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error searching products", e);
         }
 
-        if (minPrice != null)
+        return products;
+    }
+
+
+    // SEARCH ONE PAGE OF PRODUCTS (KEYSET)
+
+    @Override
+    public ProductPage searchPage(ProductSearch search)
+    {
+        ProductSort sort = search.getSort();
+        List<Product> products = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT product_id, name, price, category_id, description,
+                       subcategory, image_url, stock, featured
+                FROM products
+                WHERE 1 = 1
+                """);
+
+        List<Object> params = new ArrayList<>();
+
+        if (search.getProductIds() != null && search.getProductIds().isEmpty())
         {
-            sql.append(" AND price >= ?");
-            params.add(minPrice);
+            return new ProductPage();
         }
 
-        if (maxPrice != null)
+        appendFilters(sql, params, search);
+
+        // Seek past the last row of the previous page: (sort key, product_id) > (cursor value, cursor id)
+        ProductCursor after = search.getAfter();
+        if (after != null)
         {
-            sql.append(" AND price <= ?");
-            params.add(maxPrice);
+            if (sort == ProductSort.PRODUCT_ID)
+            {
+                sql.append(" AND product_id > ?");
+                params.add(after.getProductId());
+            }
+            else
+            {
+                Object value = sort == ProductSort.PRICE ? after.getPriceValue() : after.getValue();
+                sql.append(" AND (").append(sort.getColumn()).append(" > ?")
+                   .append(" OR (").append(sort.getColumn()).append(" = ? AND product_id > ?))");
+                params.add(value);
+                params.add(value);
+                params.add(after.getProductId());
+            }
         }
 
-        if (subCategory != null && !subCategory.isBlank())
+        if (sort == ProductSort.PRODUCT_ID)
         {
-            sql.append(" AND subcategory LIKE ?");
-            params.add("%" + subCategory + "%");
+            sql.append(" ORDER BY product_id");
+        }
+        else
+        {
+            sql.append(" ORDER BY ").append(sort.getColumn()).append(", product_id");
         }
 
+        // Fetch one extra row to learn whether there is a next page
+        sql.append(" LIMIT ?");
+        params.add(search.getLimit() + 1);
+
         try (Connection connection = getConnection();
              PreparedStatement stmt = connection.prepareStatement(sql.toString()))
         {
-            // Bind parameters in order
             for (int i = 0; i < params.size(); i++)
             {
                 stmt.setObject(i + 1, params.get(i));
@@ -86,7 +170,146 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
             throw new RuntimeException("Error searching products", e);
         }
 
-        return products;
+        return ProductPage.fromLookahead(products, search);
+    }
+
+
+    // STREAM PRODUCTS (CONSTANT MEMORY)
+
+    @Override
+    public void streamSearch(Integer categoryId,
+                             BigDecimal minPrice,
+                             BigDecimal maxPrice,
+                             String subCategory,
+                             Consumer<Product> consumer)
+    {
+        StringBuilder sql = new StringBuilder("""
+                SELECT product_id, name, price, category_id, description,
+                       subcategory, image_url, stock, featured
+                FROM products
+                WHERE 1 = 1
+                """);
+
+        List<Object> params = new ArrayList<>();
+
+        appendFilters(sql, params, categoryId, minPrice, maxPrice, subCategory);
+        sql.append(" ORDER BY product_id");
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+        {
+            // Connector/J only streams row by row (instead of buffering the whole result) with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+
+            for (int i = 0; i < params.size(); i++)
+            {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    consumer.accept(mapRow(rs));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error streaming products", e);
+        }
+    }
+
+
+    // SUGGEST PRODUCT NAMES
+
+    @Override
+    public List<ProductSuggestion> suggest(String prefix, int limit)
+    {
+        List<ProductSuggestion> suggestions = new ArrayList<>();
+
+        // names only; IndexedProductDao also suggests subcategories when its suggest index is enabled
+        String sql = """
+                SELECT name, MAX(featured) AS featured
+                FROM products
+                WHERE name LIKE ?
+                GROUP BY name
+                ORDER BY featured DESC, name
+                LIMIT ?
+                """;
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setString(1, prefix.trim() + "%");
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    suggestions.add(new ProductSuggestion(rs.getString("name"), ProductSuggestion.PRODUCT));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error suggesting products", e);
+        }
+
+        return suggestions;
+    }
+
+
+    // FACET COUNTS (ONE GROUPED QUERY)
+
+    @Override
+    public ProductFacets facets(ProductSearch search, BigDecimal priceStep)
+    {
+        ProductFacets facets = new ProductFacets(priceStep);
+
+        if (search.getProductIds() != null && search.getProductIds().isEmpty())
+        {
+            return facets;
+        }
+
+        // One row per (category, subcategory, price bucket) group; the three facets are its marginals
+        StringBuilder sql = new StringBuilder("""
+                SELECT category_id, subcategory, FLOOR(price / ?) AS bucket, COUNT(*) AS products
+                FROM products
+                WHERE 1 = 1
+                """);
+
+        List<Object> params = new ArrayList<>();
+        params.add(priceStep);
+
+        appendFilters(sql, params, search);
+        sql.append(" GROUP BY category_id, subcategory, bucket");
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString()))
+        {
+            for (int i = 0; i < params.size(); i++)
+            {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    facets.count(rs.getInt("category_id"), rs.getString("subcategory"),
+                            rs.getLong("bucket"), rs.getLong("products"));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error counting product facets", e);
+        }
+
+        return facets;
     }
 
 
@@ -160,6 +383,71 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
     }
 
 
+    // GET PRODUCTS BY IDS (ONE QUERY PER CHUNK)
+
+    @Override
+    public List<Product> getByIds(Collection<Integer> productIds)
+    {
+        // distinct ids in the order they were asked for
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        ids.removeIf(id -> id == null);
+
+        if (ids.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Product> byId = new HashMap<>();
+
+        try (Connection connection = getConnection())
+        {
+            for (int start = 0; start < ids.size(); start += GET_BY_IDS_CHUNK_SIZE)
+            {
+                List<Integer> chunk = ids.subList(start, Math.min(start + GET_BY_IDS_CHUNK_SIZE, ids.size()));
+
+                String sql = """
+                        SELECT product_id, name, price, category_id, description,
+                               subcategory, image_url, stock, featured
+                        FROM products
+                        WHERE product_id IN (""" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement stmt = connection.prepareStatement(sql))
+                {
+                    for (int i = 0; i < chunk.size(); i++)
+                    {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery())
+                    {
+                        while (rs.next())
+                        {
+                            Product product = mapRow(rs);
+                            byId.put(product.getProductId(), product);
+                        }
+                    }
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error retrieving products", e);
+        }
+
+        // requested order; ids that do not exist are left out
+        List<Product> products = new ArrayList<>(byId.size());
+        for (Integer id : ids)
+        {
+            Product product = byId.get(id);
+            if (product != null)
+            {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+
     // CREATE PRODUCT
 
     @Override
@@ -192,6 +480,7 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
                     if (keys.next())
                     {
                         int newId = keys.getInt(1);
+                        versions.bump(newId);
                         return getById(newId);
                     }
                 }
@@ -206,6 +495,136 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
     }
 
 
+    // CREATE PRODUCTS IN BATCH (ONE TRANSACTION)
+
+    @Override
+    public Map<Integer, String> createBatch(List<Product> products)
+    {
+        Map<Integer, String> errors = new HashMap<>();
+
+        if (products.isEmpty())
+        {
+            return errors;
+        }
+
+        String sql = """
+                INSERT INTO products (name, price, category_id, description,
+                                      subcategory, image_url, stock, featured)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+                {
+                    // with rewriteBatchedStatements the driver sends the batch as multi-row INSERTs
+                    for (Product product : products)
+                    {
+                        bindInsert(stmt, product);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+
+                    try (ResultSet keys = stmt.getGeneratedKeys())
+                    {
+                        for (int i = 0; i < products.size() && keys.next(); i++)
+                        {
+                            products.get(i).setProductId(keys.getInt(1));
+                        }
+                    }
+                    connection.commit();
+                }
+                catch (BatchUpdateException e)
+                {
+                    // a row was rejected and the batch rolled back: insert the rows one at a time to find it
+                    connection.rollback();
+                    insertEachRow(connection, sql, products, errors);
+                    connection.commit();
+                }
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                // nothing half-written goes back to the pool; ids handed out before the failure no longer exist
+                connection.rollback();
+                for (Product product : products)
+                {
+                    product.setProductId(0);
+                }
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error importing products", e);
+        }
+
+        List<Integer> createdIds = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            if (product.getProductId() != 0)
+            {
+                createdIds.add(product.getProductId());
+            }
+        }
+        versions.bumpAll(createdIds);
+
+        return errors;
+    }
+
+    private static void insertEachRow(Connection connection, String sql, List<Product> products,
+                                      Map<Integer, String> errors) throws SQLException
+    {
+        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            for (int i = 0; i < products.size(); i++)
+            {
+                Product product = products.get(i);
+                product.setProductId(0);
+
+                try
+                {
+                    bindInsert(stmt, product);
+                    stmt.executeUpdate();
+
+                    try (ResultSet keys = stmt.getGeneratedKeys())
+                    {
+                        if (keys.next())
+                        {
+                            product.setProductId(keys.getInt(1));
+                        }
+                    }
+                }
+                catch (SQLException e)
+                {
+                    // MySQL only rolls back the failing statement, the rest of the transaction stands
+                    errors.put(i, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, Product product) throws SQLException
+    {
+        stmt.setString(1, product.getName());
+        stmt.setBigDecimal(2, product.getPrice());
+        stmt.setInt(3, product.getCategoryId());
+        stmt.setString(4, product.getDescription());
+        stmt.setString(5, product.getSubCategory());
+        stmt.setString(6, product.getImageUrl());
+        stmt.setInt(7, product.getStock());
+        stmt.setBoolean(8, product.isFeatured());
+    }
+
+
     // UPDATE PRODUCT (FIXED)
 
     @Override
@@ -243,6 +662,8 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
             {
                 throw new RuntimeException("Update failed — product not found: " + productId);
             }
+
+            versions.bump(productId);
         }
         catch (SQLException e)
         {
@@ -251,6 +672,166 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
     }
 
 
+    // PARTIAL UPDATES IN BATCH (CHUNKED TRANSACTIONS)
+
+    @Override
+    public List<ProductUpdateResult> updateBatch(List<ProductUpdate> updates)
+    {
+        List<ProductUpdateResult> results = new ArrayList<>(updates.size());
+
+        if (updates.isEmpty())
+        {
+            return results;
+        }
+
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                for (int start = 0; start < updates.size(); start += UPDATE_BATCH_CHUNK_SIZE)
+                {
+                    List<ProductUpdate> chunk = updates.subList(start, Math.min(start + UPDATE_BATCH_CHUNK_SIZE, updates.size()));
+                    List<ProductUpdateResult> chunkResults = updateChunk(connection, chunk);
+                    results.addAll(chunkResults);
+
+                    List<Integer> updatedIds = new ArrayList<>(chunkResults.size());
+                    for (ProductUpdateResult result : chunkResults)
+                    {
+                        if (ProductUpdateResult.UPDATED.equals(result.getStatus()))
+                        {
+                            updatedIds.add(result.getProductId());
+                        }
+                    }
+                    versions.bumpAll(updatedIds);
+                }
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                // chunks before this one stay committed; the failing one goes
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error updating products", e);
+        }
+
+        return results;
+    }
+
+    // One transaction. Rows are grouped by the columns they set, so each group is a single batched statement
+    // that only writes those columns.
+    private static List<ProductUpdateResult> updateChunk(Connection connection, List<ProductUpdate> chunk) throws SQLException
+    {
+        ProductUpdateResult[] results = new ProductUpdateResult[chunk.size()];
+
+        Map<String, List<Integer>> rowsBySql = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++)
+        {
+            rowsBySql.computeIfAbsent(updateSql(chunk.get(i)), sql -> new ArrayList<>()).add(i);
+        }
+
+        try
+        {
+            for (Map.Entry<String, List<Integer>> group : rowsBySql.entrySet())
+            {
+                try (PreparedStatement stmt = connection.prepareStatement(group.getKey()))
+                {
+                    for (int index : group.getValue())
+                    {
+                        bindUpdate(stmt, chunk.get(index));
+                        stmt.addBatch();
+                    }
+
+                    int[] counts = stmt.executeBatch();
+                    for (int i = 0; i < counts.length; i++)
+                    {
+                        int index = group.getValue().get(i);
+                        results[index] = updateResult(chunk.get(index).getProductId(), counts[i]);
+                    }
+                }
+            }
+            connection.commit();
+        }
+        catch (BatchUpdateException e)
+        {
+            // a row was rejected and the chunk rolled back: apply the rows one at a time to find it
+            connection.rollback();
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                results[i] = updateOneRow(connection, chunk.get(i));
+            }
+            connection.commit();
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private static ProductUpdateResult updateOneRow(Connection connection, ProductUpdate update)
+    {
+        try (PreparedStatement stmt = connection.prepareStatement(updateSql(update)))
+        {
+            bindUpdate(stmt, update);
+            return updateResult(update.getProductId(), stmt.executeUpdate());
+        }
+        catch (SQLException e)
+        {
+            return new ProductUpdateResult(update.getProductId(), ProductUpdateResult.FAILED, e.getMessage());
+        }
+    }
+
+    private static String updateSql(ProductUpdate update)
+    {
+        List<String> columns = new ArrayList<>(3);
+        if (update.getPrice() != null)
+        {
+            columns.add("price = ?");
+        }
+        if (update.getStock() != null)
+        {
+            columns.add("stock = ?");
+        }
+        if (update.getFeatured() != null)
+        {
+            columns.add("featured = ?");
+        }
+        return "UPDATE products SET " + String.join(", ", columns) + " WHERE product_id = ?";
+    }
+
+    private static void bindUpdate(PreparedStatement stmt, ProductUpdate update) throws SQLException
+    {
+        int index = 1;
+        if (update.getPrice() != null)
+        {
+            stmt.setBigDecimal(index++, update.getPrice());
+        }
+        if (update.getStock() != null)
+        {
+            stmt.setInt(index++, update.getStock());
+        }
+        if (update.getFeatured() != null)
+        {
+            stmt.setBoolean(index++, update.getFeatured());
+        }
+        stmt.setInt(index, update.getProductId());
+    }
+
+    // Connector/J reports matched (not changed) rows, so 0 means the product does not exist
+    private static ProductUpdateResult updateResult(int productId, int count)
+    {
+        String status = count == 0 ? ProductUpdateResult.NOT_FOUND : ProductUpdateResult.UPDATED;
+        return new ProductUpdateResult(productId, status, null);
+    }
+
+
     // DELETE PRODUCT
 
     @Override
@@ -263,6 +844,7 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
         {
             stmt.setInt(1, productId);
             stmt.executeUpdate();
+            versions.bump(productId);
         }
         catch (SQLException e)
         {
@@ -271,6 +853,84 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
     }
 
 
+    // REFRESH (ROWS CHANGED ELSEWHERE, E.G. STOCK AT CHECKOUT)
+
+    @Override
+    public void refresh(Collection<Integer> productIds)
+    {
+        versions.bumpAll(new LinkedHashSet<>(productIds));
+    }
+
+
+    // VERSION STAMPS (ETAGS)
+
+    @Override
+    public long version()
+    {
+        return versions.current();
+    }
+
+    @Override
+    public long version(int productId)
+    {
+        return versions.of(productId);
+    }
+
+
+    // SHARED SEARCH HELPERS
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, Integer categoryId,
+                                      BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        if (categoryId != null)
+        {
+            sql.append(" AND category_id = ?");
+            params.add(categoryId);
+        }
+
+        if (minPrice != null)
+        {
+            sql.append(" AND price >= ?");
+            params.add(minPrice);
+        }
+
+        if (maxPrice != null)
+        {
+            sql.append(" AND price <= ?");
+            params.add(maxPrice);
+        }
+
+        if (subCategory != null && !subCategory.isBlank())
+        {
+            sql.append(" AND subcategory LIKE ?");
+            params.add("%" + subCategory + "%");
+        }
+    }
+
+    // All ProductSearch filters; callers handle an empty productIds list (which matches nothing) themselves
+    private static void appendFilters(StringBuilder sql, List<Object> params, ProductSearch search)
+    {
+        appendFilters(sql, params, search.getCategoryId(), search.getMinPrice(),
+                search.getMaxPrice(), search.getSubCategory());
+
+        // Unranked text match; IndexedProductDao answers q= from its inverted index instead when enabled
+        if (search.getQuery() != null)
+        {
+            sql.append(" AND (name LIKE ? OR description LIKE ?)");
+            params.add("%" + search.getQuery() + "%");
+            params.add("%" + search.getQuery() + "%");
+        }
+
+        if (search.getProductIds() != null)
+        {
+            sql.append(" AND product_id IN (")
+               .append(String.join(", ", Collections.nCopies(search.getProductIds().size(), "?")))
+               .append(")");
+            params.addAll(search.getProductIds());
+        }
+    }
+
+
     // MAP RESULTSET → PRODUCT OBJECT
 
     protected static Product mapRow(ResultSet row) throws SQLException
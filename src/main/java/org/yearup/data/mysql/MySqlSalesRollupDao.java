@@ -0,0 +1,421 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.SalesRollupDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.DailySales;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Daily sales per product and per category (reports.rollup.enabled), so reports read one row per day instead of
+    aggregating order_line_items on the primary. A background job tails order_line_items by id: the rollups hold
+    every line item up to the id in sales_rollup_watermark, and each run adds the newer ones in batches of
+    batch-size ids, one transaction per batch (the rollup deltas and the new watermark commit together, so nothing
+    is counted twice, and several instances can run the job because the watermark row is locked).
+
+    Line item ids are handed out when a checkout inserts them, but a checkout can commit after one with a higher
+    id. So a run only goes up to the highest id seen by the previous run, an interval earlier, by which time those
+    checkouts have almost always committed or rolled back. The rollups therefore trail checkouts by one to two
+    intervals. A checkout still open after that (stuck behind a lock, say) must not be skipped, so each batch
+    first reads its id range with FOR SHARE, which waits for any uncommitted line item in it. If that wait passes
+    innodb_lock_wait_timeout the batch fails, and the next run retries it from the same watermark.
+
+    Rows are per day of orders.date (server time). A product's category is read when its line items are rolled up;
+    moving a product to another category later does not move its past sales (a backfill does).
+ */
+@Component
+public class MySqlSalesRollupDao extends MySqlDaoBase implements SalesRollupDao, InitializingBean, DisposableBean
+{
+    private static final String PRODUCT_DELTAS = """
+            INSERT INTO sales_daily_products (day, product_id, units, revenue, line_items)
+            SELECT * FROM (
+                SELECT DATE(o.date) AS day, li.product_id, SUM(li.quantity) AS units,
+                       SUM(li.sales_price * li.quantity - li.discount) AS revenue, COUNT(*) AS line_items
+                FROM order_line_items li
+                JOIN orders o ON o.order_id = li.order_id
+                WHERE li.order_line_item_id > ? AND li.order_line_item_id <= ?
+                GROUP BY DATE(o.date), li.product_id
+            ) AS delta
+            ON DUPLICATE KEY UPDATE units = sales_daily_products.units + delta.units,
+                                    revenue = sales_daily_products.revenue + delta.revenue,
+                                    line_items = sales_daily_products.line_items + delta.line_items
+            """;
+
+    private static final String CATEGORY_DELTAS = """
+            INSERT INTO sales_daily_categories (day, category_id, units, revenue, line_items)
+            SELECT * FROM (
+                SELECT DATE(o.date) AS day, p.category_id, SUM(li.quantity) AS units,
+                       SUM(li.sales_price * li.quantity - li.discount) AS revenue, COUNT(*) AS line_items
+                FROM order_line_items li
+                JOIN orders o ON o.order_id = li.order_id
+                JOIN products p ON p.product_id = li.product_id
+                WHERE li.order_line_item_id > ? AND li.order_line_item_id <= ?
+                GROUP BY DATE(o.date), p.category_id
+            ) AS delta
+            ON DUPLICATE KEY UPDATE units = sales_daily_categories.units + delta.units,
+                                    revenue = sales_daily_categories.revenue + delta.revenue,
+                                    line_items = sales_daily_categories.line_items + delta.line_items
+            """;
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final long batchPauseMillis;
+
+    private ScheduledExecutorService scheduler;
+    // the highest line item id seen by the previous run; this run rolls up to here
+    private volatile int settledUpTo;
+    private final AtomicBoolean backfillRequested = new AtomicBoolean();
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong backfills = new AtomicLong();
+    private final AtomicLong watermark = new AtomicLong();
+
+    @Autowired
+    public MySqlSalesRollupDao(DataSource dataSource, MetricsRegistry metricsRegistry,
+                               @Value("${reports.rollup.enabled:true}") boolean enabled,
+                               @Value("${reports.rollup.interval-seconds:60}") long intervalSeconds,
+                               @Value("${reports.rollup.batch-size:10000}") int batchSize,
+                               @Value("${reports.rollup.batch-pause-millis:50}") long batchPauseMillis)
+    {
+        super(dataSource);
+        this.enabled = enabled;
+        this.intervalMillis = Math.max(1, intervalSeconds) * 1000;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMillis = Math.max(0, batchPauseMillis);
+
+        if (enabled)
+        {
+            metricsRegistry.register("salesRollup", this::stats);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+        }
+    }
+
+
+    // READS (ONE ROW PER DAY AND KEY)
+
+    @Override
+    public List<DailySales> getProductSales(Integer productId, LocalDate from, LocalDate to)
+    {
+        return read("sales_daily_products", "product_id", productId, from, to);
+    }
+
+    @Override
+    public List<DailySales> getCategorySales(Integer categoryId, LocalDate from, LocalDate to)
+    {
+        return read("sales_daily_categories", "category_id", categoryId, from, to);
+    }
+
+    // with an id the (id, day) primary key is read for the range; without it the day index is
+    private List<DailySales> read(String table, String idColumn, Integer id, LocalDate from, LocalDate to)
+    {
+        StringBuilder sql = new StringBuilder("SELECT day, ").append(idColumn)
+                .append(", units, revenue, line_items FROM ").append(table)
+                .append(" WHERE day BETWEEN ? AND ?");
+        if (id != null)
+        {
+            sql.append(" AND ").append(idColumn).append(" = ?");
+        }
+        sql.append(" ORDER BY day, ").append(idColumn);
+
+        List<DailySales> rows = new ArrayList<>();
+        boolean perProduct = idColumn.equals("product_id");
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql.toString()))
+        {
+            stmt.setDate(1, Date.valueOf(from));
+            stmt.setDate(2, Date.valueOf(to));
+            if (id != null)
+            {
+                stmt.setInt(3, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    int key = rs.getInt(idColumn);
+                    rows.add(new DailySales(rs.getDate("day").toLocalDate(),
+                            perProduct ? key : null,
+                            perProduct ? null : key,
+                            rs.getInt("units"),
+                            rs.getBigDecimal("revenue"),
+                            rs.getInt("line_items")));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error reading sales rollups", e);
+        }
+
+        return rows;
+    }
+
+
+    // BACKFILL
+
+    @Override
+    public void backfill()
+    {
+        if (!enabled)
+        {
+            throw new IllegalStateException("Sales rollups are disabled (reports.rollup.enabled).");
+        }
+
+        // done by the rollup thread, so it never overlaps a run
+        if (backfillRequested.compareAndSet(false, true))
+        {
+            scheduler.execute(this::runQuietly);
+        }
+    }
+
+
+    // ROLLUP RUN
+
+    // the same steps the rollup thread takes, run on the caller's thread
+    void rollUp(boolean backfill) throws InterruptedException
+    {
+        if (backfill)
+        {
+            backfillRequested.set(true);
+        }
+        run();
+    }
+
+    private void runQuietly()
+    {
+        try
+        {
+            run();
+        }
+        catch (RuntimeException e)
+        {
+            // counted in failures; the next run starts again from the watermark
+            failures.incrementAndGet();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() throws InterruptedException
+    {
+        if (backfillRequested.get())
+        {
+            // a failed reset leaves the request in place for the next run
+            reset();
+            backfillRequested.set(false);
+            backfills.incrementAndGet();
+        }
+
+        int upTo = settledUpTo;
+        settledUpTo = maxLineItemId();
+        runs.incrementAndGet();
+
+        // each batch is its own short transaction; the pause leaves the primary some air during a backfill
+        while (applyBatch(upTo))
+        {
+            batches.incrementAndGet();
+            Thread.sleep(batchPauseMillis);
+        }
+    }
+
+    // rolls up the next batch-size ids after the watermark (but not past upTo); false when there was nothing left
+    private boolean applyBatch(int upTo)
+    {
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                int from = lockWatermark(connection);
+                watermark.set(from);
+                if (from >= upTo)
+                {
+                    connection.commit();
+                    return false;
+                }
+
+                int to = (int) Math.min((long) from + batchSize, upTo);
+
+                // waits out checkouts that still hold uncommitted line items in the range, so none is skipped
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "SELECT COUNT(*) FROM order_line_items WHERE order_line_item_id > ? AND order_line_item_id <= ? FOR SHARE"))
+                {
+                    stmt.setInt(1, from);
+                    stmt.setInt(2, to);
+                    try (ResultSet rs = stmt.executeQuery())
+                    {
+                        rs.next();
+                    }
+                }
+
+                for (String sql : List.of(PRODUCT_DELTAS, CATEGORY_DELTAS))
+                {
+                    try (PreparedStatement stmt = connection.prepareStatement(sql))
+                    {
+                        stmt.setInt(1, from);
+                        stmt.setInt(2, to);
+                        stmt.executeUpdate();
+                    }
+                }
+
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "UPDATE sales_rollup_watermark SET last_line_item_id = ? WHERE id = 1"))
+                {
+                    stmt.setInt(1, to);
+                    stmt.executeUpdate();
+                }
+
+                connection.commit();
+                watermark.set(to);
+                return true;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error rolling up sales", e);
+        }
+    }
+
+    // empties both rollups and moves the watermark back to the start, in one transaction
+    private void reset()
+    {
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                lockWatermark(connection);
+                for (String sql : List.of("DELETE FROM sales_daily_products",
+                                          "DELETE FROM sales_daily_categories",
+                                          "UPDATE sales_rollup_watermark SET last_line_item_id = 0 WHERE id = 1"))
+                {
+                    try (PreparedStatement stmt = connection.prepareStatement(sql))
+                    {
+                        stmt.executeUpdate();
+                    }
+                }
+                connection.commit();
+                watermark.set(0);
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error resetting sales rollups", e);
+        }
+    }
+
+    private static int lockWatermark(Connection connection) throws SQLException
+    {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT last_line_item_id FROM sales_rollup_watermark WHERE id = 1 FOR UPDATE");
+             ResultSet rs = stmt.executeQuery())
+        {
+            if (!rs.next())
+            {
+                throw new IllegalStateException("sales_rollup_watermark has no row with id 1.");
+            }
+            return rs.getInt("last_line_item_id");
+        }
+    }
+
+    private int maxLineItemId()
+    {
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "SELECT COALESCE(MAX(order_line_item_id), 0) FROM order_line_items");
+             ResultSet rs = stmt.executeQuery())
+        {
+            rs.next();
+            return rs.getInt(1);
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error reading the newest line item", e);
+        }
+    }
+
+    private Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("watermark", watermark.get());
+        stats.put("settledUpTo", (long) settledUpTo);
+        stats.put("runs", runs.get());
+        stats.put("batches", batches.get());
+        stats.put("failures", failures.get());
+        stats.put("backfills", backfills.get());
+        return stats;
+    }
+}
@@ -0,0 +1,318 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartChange;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDao
+{
+    @Autowired
+    public MySqlShoppingCartDao(DataSource dataSource)
+    {
+        super(dataSource);
+    }
+
+
+    // GET CART (ONE JOIN, NO PER-LINE PRODUCT LOOKUPS)
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        String sql = """
+                SELECT p.product_id, p.name, p.price, p.category_id, p.description,
+                       p.subcategory, p.image_url, p.stock, p.featured,
+                       c.quantity
+                FROM shopping_cart c
+                JOIN products p ON p.product_id = c.product_id
+                WHERE c.user_id = ?
+                """;
+
+        ShoppingCart cart = new ShoppingCart();
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, userId);
+
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    ShoppingCartItem item = new ShoppingCartItem();
+                    item.setProduct(MySqlProductDao.mapRow(rs));
+                    item.setQuantity(rs.getInt("quantity"));
+                    cart.add(item);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error retrieving shopping cart", e);
+        }
+
+        return cart;
+    }
+
+
+    // ADD PRODUCT (ONE ROUND TRIP: INSERT OR BUMP THE QUANTITY)
+
+    @Override
+    public boolean addProduct(int userId, int productId)
+    {
+        String sql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                VALUES (?, ?, 1)
+                ON DUPLICATE KEY UPDATE quantity = quantity + 1
+                """;
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, productId);
+            stmt.executeUpdate();
+            return true;
+        }
+        catch (SQLIntegrityConstraintViolationException e)
+        {
+            // the products foreign key: no such product
+            return false;
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error adding product to shopping cart", e);
+        }
+    }
+
+
+    // UPDATE QUANTITY
+
+    @Override
+    public boolean updateQuantity(int userId, int productId, int quantity)
+    {
+        String sql = "UPDATE shopping_cart SET quantity = ? WHERE user_id = ? AND product_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, productId);
+
+            // Connector/J reports matched rows, so 0 means the product is not in the cart
+            return stmt.executeUpdate() > 0;
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error updating shopping cart", e);
+        }
+    }
+
+
+    // CLEAR CART
+
+    @Override
+    public void clear(int userId)
+    {
+        String sql = "DELETE FROM shopping_cart WHERE user_id = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, userId);
+            stmt.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error clearing shopping cart", e);
+        }
+    }
+
+
+    // APPLY SEVERAL CHANGES (ONE TRANSACTION: ONE BATCHED UPSERT, ONE DELETE)
+
+    @Override
+    public boolean applyChanges(int userId, List<ShoppingCartChange> changes)
+    {
+        List<ShoppingCartChange> upserts = new ArrayList<>();
+        List<Integer> removals = new ArrayList<>();
+        for (ShoppingCartChange change : changes)
+        {
+            if (change.getQuantity() > 0)
+            {
+                upserts.add(change);
+            }
+            else
+            {
+                removals.add(change.getProductId());
+            }
+        }
+
+        if (upserts.isEmpty() && removals.isEmpty())
+        {
+            return true;
+        }
+
+        String upsertSql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                VALUES (?, ?, ?)
+                ON DUPLICATE KEY UPDATE quantity = ?
+                """;
+        String deleteSql = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id IN ("
+                + String.join(", ", Collections.nCopies(removals.size(), "?")) + ")";
+
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                if (!upserts.isEmpty())
+                {
+                    try (PreparedStatement upsert = connection.prepareStatement(upsertSql))
+                    {
+                        for (ShoppingCartChange change : upserts)
+                        {
+                            upsert.setInt(1, userId);
+                            upsert.setInt(2, change.getProductId());
+                            upsert.setInt(3, change.getQuantity());
+                            upsert.setInt(4, change.getQuantity());
+                            upsert.addBatch();
+                        }
+                        upsert.executeBatch();
+                    }
+                }
+
+                if (!removals.isEmpty())
+                {
+                    try (PreparedStatement delete = connection.prepareStatement(deleteSql))
+                    {
+                        delete.setInt(1, userId);
+                        for (int i = 0; i < removals.size(); i++)
+                        {
+                            delete.setInt(i + 2, removals.get(i));
+                        }
+                        delete.executeUpdate();
+                    }
+                }
+
+                connection.commit();
+                return true;
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                if (isForeignKeyViolation(e))
+                {
+                    // the products foreign key: a product being added was deleted since it was checked
+                    return false;
+                }
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error updating shopping cart", e);
+        }
+    }
+
+
+    // SAVE WHOLE CARTS (ONE TRANSACTION, BATCHED)
+
+    @Override
+    public void saveAll(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+    {
+        if (quantitiesByUser.isEmpty())
+        {
+            return;
+        }
+
+        String deleteSql = "DELETE FROM shopping_cart WHERE user_id = ?";
+        // products deleted in the meantime are skipped instead of failing the whole batch on the foreign key
+        String insertSql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                SELECT ?, product_id, ? FROM products WHERE product_id = ?
+                """;
+
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement delete = connection.prepareStatement(deleteSql);
+                 PreparedStatement insert = connection.prepareStatement(insertSql))
+            {
+                for (Map.Entry<Integer, Map<Integer, Integer>> cart : quantitiesByUser.entrySet())
+                {
+                    delete.setInt(1, cart.getKey());
+                    delete.addBatch();
+
+                    for (Map.Entry<Integer, Integer> line : cart.getValue().entrySet())
+                    {
+                        if (line.getValue() > 0)
+                        {
+                            insert.setInt(1, cart.getKey());
+                            insert.setInt(2, line.getValue());
+                            insert.setInt(3, line.getKey());
+                            insert.addBatch();
+                        }
+                    }
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+                connection.commit();
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error saving shopping carts", e);
+        }
+    }
+
+    // every change is written as it is made, and nothing is kept in memory
+    @Override
+    public void flush(int userId)
+    {
+    }
+
+    @Override
+    public void evict(int userId)
+    {
+    }
+
+    // a batched statement reports the constraint failure as the cause of its BatchUpdateException
+    private static boolean isForeignKeyViolation(SQLException e)
+    {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || e.getCause() instanceof SQLIntegrityConstraintViolationException;
+    }
+}
@@ -0,0 +1,468 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.metrics.MetricsRegistry;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Striped stock for hot products (inventory.shards.enabled). Every checkout of a product normally updates the
+    same products row, so buyers of one viral product queue on its row lock. Once promote-at-concurrency
+    checkouts are working on a product at the same moment, its stock is split into `count` rows of
+    product_stock_shards, and checkouts take from one shard row picked at random instead, so up to `count` buyers
+    proceed at once. Taking stock stays inside the checkout transaction, so a rollback or a crash loses nothing.
+
+    Each shard row remembers how much it was given (allocated) and how much is left (stock). Every
+    rebalance-seconds each sharded product is reconciled: the units sold since the last rebalance are subtracted
+    from products.stock, and what is left is split evenly again. A product that no longer sees contention, or
+    has fewer units than shards, goes back to normal mode. So while a product is sharded:
+    - products.stock is its stock as of the last rebalance, so the catalog can show a little more than is left.
+    - A manual change to products.stock still counts; it takes effect for buyers at the next rebalance.
+    Every promotion, rebalance and demotion rewrites products.stock outside ProductDao, so each one ends with
+    ProductDao.refresh for that product (cached copies, the catalog index and ETags catch up).
+ */
+@Component
+public class MySqlStockShards extends MySqlDaoBase implements InitializingBean, DisposableBean
+{
+    private final ProductDao productDao;
+    private final boolean enabled;
+    private final int shardCount;
+    private final int promoteAtConcurrency;
+    private final long rebalanceMillis;
+
+    // sharded product id -> number of shard rows
+    private final Map<Integer, Integer> sharded = new ConcurrentHashMap<>();
+    // checkouts working on each product right now (no entry at zero), and whether it reached the threshold since
+    // the last rebalance
+    private final Map<Integer, Integer> inFlight = new ConcurrentHashMap<>();
+    private final Set<Integer> contended = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> promoting = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong shardTakes = new AtomicLong();
+    private final AtomicLong spreadTakes = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong demotions = new AtomicLong();
+    private final AtomicLong rebalances = new AtomicLong();
+
+    @Autowired
+    public MySqlStockShards(DataSource dataSource, ProductDao productDao, MetricsRegistry metricsRegistry,
+                            @Value("${inventory.shards.enabled:false}") boolean enabled,
+                            @Value("${inventory.shards.count:16}") int shardCount,
+                            @Value("${inventory.shards.promote-at-concurrency:8}") int promoteAtConcurrency,
+                            @Value("${inventory.shards.rebalance-seconds:5}") long rebalanceSeconds)
+    {
+        super(dataSource);
+        this.productDao = productDao;
+        this.enabled = enabled;
+        this.shardCount = Math.max(2, shardCount);
+        this.promoteAtConcurrency = Math.max(2, promoteAtConcurrency);
+        this.rebalanceMillis = Math.max(1, rebalanceSeconds) * 1000;
+
+        if (enabled)
+        {
+            metricsRegistry.register("stockShards", this::stats);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        // products left sharded by an earlier run carry on where they were
+        sharded.putAll(loadSharded());
+
+        if (!enabled && sharded.isEmpty())
+        {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-shards");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebalanceQuietly, rebalanceMillis, rebalanceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdown();
+        }
+    }
+
+    public boolean isSharded(int productId)
+    {
+        return sharded.containsKey(productId);
+    }
+
+    // false when no product can have shard rows, so a failed products row update needs no second look
+    public boolean inUse()
+    {
+        return enabled || !sharded.isEmpty();
+    }
+
+
+    // CONTENTION (checkouts call enter / exit around their stock update)
+
+    public void enter(Collection<Integer> productIds)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        for (Integer productId : productIds)
+        {
+            int working = inFlight.merge(productId, 1, Integer::sum);
+            if (working >= promoteAtConcurrency)
+            {
+                contended.add(productId);
+                if (!sharded.containsKey(productId) && promoting.add(productId))
+                {
+                    // promoted in the background; this checkout still uses the products row
+                    scheduler.execute(() -> promoteQuietly(productId));
+                }
+            }
+        }
+    }
+
+    public void exit(Collection<Integer> productIds)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        for (Integer productId : productIds)
+        {
+            // the last checkout out removes the entry, so the map only holds products being bought right now
+            inFlight.computeIfPresent(productId, (id, working) -> working > 1 ? working - 1 : null);
+        }
+    }
+
+
+    // TAKE STOCK (INSIDE THE CALLER'S CHECKOUT TRANSACTION)
+
+    // false when the product does not have `quantity` left. A product demoted since isSharded was asked has no
+    // shard rows any more and is taken from the products row.
+    public boolean take(Connection connection, int productId, int quantity) throws SQLException
+    {
+        int shards = sharded.getOrDefault(productId, 0);
+
+        // one shard row, starting at a random one, so concurrent buyers rarely meet on the same row
+        if (shards > 0)
+        {
+            String sql = """
+                    UPDATE product_stock_shards SET stock = stock - ?
+                    WHERE product_id = ? AND shard = ? AND stock >= ?
+                    """;
+            try (PreparedStatement stmt = connection.prepareStatement(sql))
+            {
+                int start = ThreadLocalRandom.current().nextInt(shards);
+                for (int i = 0; i < shards; i++)
+                {
+                    stmt.setInt(1, quantity);
+                    stmt.setInt(2, productId);
+                    stmt.setInt(3, (start + i) % shards);
+                    stmt.setInt(4, quantity);
+                    if (stmt.executeUpdate() > 0)
+                    {
+                        shardTakes.incrementAndGet();
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // no single shard has enough: lock them all and take across them (rare; serializes this product briefly)
+        List<int[]> rows = new ArrayList<>();
+        int available = 0;
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT shard, stock FROM product_stock_shards WHERE product_id = ? ORDER BY shard FOR UPDATE"))
+        {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                while (rs.next())
+                {
+                    rows.add(new int[]{rs.getInt("shard"), rs.getInt("stock")});
+                    available += rs.getInt("stock");
+                }
+            }
+        }
+        if (rows.isEmpty())
+        {
+            // not sharded (any more); the lock taken above keeps it that way until this transaction ends
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?"))
+            {
+                stmt.setInt(1, quantity);
+                stmt.setInt(2, productId);
+                stmt.setInt(3, quantity);
+                return stmt.executeUpdate() > 0;
+            }
+        }
+        if (available < quantity)
+        {
+            return false;
+        }
+
+        spreadTakes.incrementAndGet();
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "UPDATE product_stock_shards SET stock = stock - ? WHERE product_id = ? AND shard = ?"))
+        {
+            int remaining = quantity;
+            for (int[] row : rows)
+            {
+                int part = Math.min(remaining, row[1]);
+                if (part > 0)
+                {
+                    stmt.setInt(1, part);
+                    stmt.setInt(2, productId);
+                    stmt.setInt(3, row[0]);
+                    stmt.addBatch();
+                    remaining -= part;
+                }
+            }
+            stmt.executeBatch();
+        }
+        return true;
+    }
+
+
+    // PROMOTE / REBALANCE / DEMOTE
+
+    // the same steps the background thread takes, run on the caller's thread
+    void promote(int productId)
+    {
+        reconcile(productId, shardCount);
+    }
+
+    void rebalance()
+    {
+        rebalanceQuietly();
+    }
+
+    private void promoteQuietly(int productId)
+    {
+        try
+        {
+            reconcile(productId, shardCount);
+        }
+        catch (RuntimeException e)
+        {
+            // stays on the products row; the next contended checkout tries again
+        }
+        finally
+        {
+            promoting.remove(productId);
+        }
+    }
+
+    private void rebalanceQuietly()
+    {
+        for (Integer productId : new ArrayList<>(sharded.keySet()))
+        {
+            try
+            {
+                // no contention since the last rebalance (or sharding switched off): back to the products row
+                boolean keep = enabled && contended.remove(productId);
+                reconcile(productId, keep ? shardCount : 0);
+            }
+            catch (RuntimeException e)
+            {
+                // left as it is; retried at the next rebalance
+            }
+        }
+    }
+
+    private void reconcile(int productId, int shards)
+    {
+        reconcileRows(productId, shards);
+        productDao.refresh(List.of(productId));
+    }
+
+    // One transaction: fold the units sold from the shards into products.stock, then split what is left into
+    // `shards` rows again (0, or fewer units than shards, means normal mode). Locks the products row first, then
+    // the shard rows; checkouts of a sharded product only ever lock its shard rows.
+    private void reconcileRows(int productId, int shards)
+    {
+        try (Connection connection = getConnection())
+        {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try
+            {
+                Integer stock = lockProductStock(connection, productId);
+                if (stock == null)
+                {
+                    deleteShards(connection, productId);
+                    connection.commit();
+                    sharded.remove(productId);
+                    return;
+                }
+
+                int sold = 0;
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "SELECT COALESCE(SUM(allocated - stock), 0) FROM product_stock_shards WHERE product_id = ? FOR UPDATE"))
+                {
+                    stmt.setInt(1, productId);
+                    try (ResultSet rs = stmt.executeQuery())
+                    {
+                        rs.next();
+                        sold = rs.getInt(1);
+                    }
+                }
+
+                int remaining = Math.max(0, stock - sold);
+                int rows = remaining < shards ? 0 : shards;
+
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "UPDATE products SET stock = ? WHERE product_id = ?"))
+                {
+                    stmt.setInt(1, remaining);
+                    stmt.setInt(2, productId);
+                    stmt.executeUpdate();
+                }
+
+                deleteShards(connection, productId);
+                if (rows > 0)
+                {
+                    insertShards(connection, productId, remaining, rows);
+                }
+                connection.commit();
+
+                boolean wasSharded = sharded.containsKey(productId);
+                if (rows > 0)
+                {
+                    sharded.put(productId, rows);
+                    (wasSharded ? rebalances : promotions).incrementAndGet();
+                }
+                else
+                {
+                    sharded.remove(productId);
+                    if (wasSharded)
+                    {
+                        demotions.incrementAndGet();
+                    }
+                }
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error rebalancing stock shards", e);
+        }
+    }
+
+    private static Integer lockProductStock(Connection connection, int productId) throws SQLException
+    {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT stock FROM products WHERE product_id = ? FOR UPDATE"))
+        {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                return rs.next() ? rs.getInt("stock") : null;
+            }
+        }
+    }
+
+    private static void deleteShards(Connection connection, int productId) throws SQLException
+    {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM product_stock_shards WHERE product_id = ?"))
+        {
+            stmt.setInt(1, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // the remainder of an uneven split goes to the first shards, one unit each
+    private static void insertShards(Connection connection, int productId, int units, int shards) throws SQLException
+    {
+        String sql = "INSERT INTO product_stock_shards (product_id, shard, stock, allocated) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            for (int shard = 0; shard < shards; shard++)
+            {
+                int share = units / shards + (shard < units % shards ? 1 : 0);
+                stmt.setInt(1, productId);
+                stmt.setInt(2, shard);
+                stmt.setInt(3, share);
+                stmt.setInt(4, share);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private Map<Integer, Integer> loadSharded()
+    {
+        Map<Integer, Integer> loaded = new LinkedHashMap<>();
+
+        try (Connection connection = getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "SELECT product_id, COUNT(*) AS shards FROM product_stock_shards GROUP BY product_id");
+             ResultSet rs = stmt.executeQuery())
+        {
+            while (rs.next())
+            {
+                loaded.put(rs.getInt("product_id"), rs.getInt("shards"));
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException("Error loading stock shards", e);
+        }
+
+        return loaded;
+    }
+
+    private Map<String, Long> stats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("shardedProducts", (long) sharded.size());
+        stats.put("productsInCheckout", (long) inFlight.size());
+        stats.put("shardTakes", shardTakes.get());
+        stats.put("spreadTakes", spreadTakes.get());
+        stats.put("promotions", promotions.get());
+        stats.put("rebalances", rebalances.get());
+        stats.put("demotions", demotions.get());
+        return stats;
+    }
+}
@@ -0,0 +1,30 @@
+package org.yearup.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/*
+    Collects the counters exposed by caches and other in-process components so they can be read from one place
+    (GET /metrics). Each source registers a supplier that is only called when the metrics are read.
+ */
+@Component
+public class MetricsRegistry
+{
+    private final Map<String, Supplier<Map<String, Long>>> sources = new ConcurrentSkipListMap<>();
+
+    public void register(String name, Supplier<Map<String, Long>> source)
+    {
+        sources.put(name, source);
+    }
+
+    public Map<String, Map<String, Long>> snapshot()
+    {
+        Map<String, Map<String, Long>> snapshot = new LinkedHashMap<>();
+        sources.forEach((name, source) -> snapshot.put(name, source.get()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,98 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/*
+    One row of the sales rollups: what one product (or one category) sold on one day. Revenue is the sum of the
+    line totals (sales price * quantity - discount), without shipping.
+ */
+public class DailySales
+{
+    private LocalDate day;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer productId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer categoryId;
+    private int units;
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private int lineItems;
+
+    public DailySales()
+    {
+    }
+
+    public DailySales(LocalDate day, Integer productId, Integer categoryId, int units, BigDecimal revenue, int lineItems)
+    {
+        this.day = day;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.units = units;
+        this.revenue = revenue;
+        this.lineItems = lineItems;
+    }
+
+    public LocalDate getDay()
+    {
+        return day;
+    }
+
+    public void setDay(LocalDate day)
+    {
+        this.day = day;
+    }
+
+    // only set on per-product rows
+    public Integer getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(Integer productId)
+    {
+        this.productId = productId;
+    }
+
+    // only set on per-category rows
+    public Integer getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public int getUnits()
+    {
+        return units;
+    }
+
+    public void setUnits(int units)
+    {
+        this.units = units;
+    }
+
+    public BigDecimal getRevenue()
+    {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue)
+    {
+        this.revenue = revenue;
+    }
+
+    public int getLineItems()
+    {
+        return lineItems;
+    }
+
+    public void setLineItems(int lineItems)
+    {
+        this.lineItems = lineItems;
+    }
+}
@@ -0,0 +1,56 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderPage
+{
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private List<Order> orders = new ArrayList<>();
+    private Integer nextCursor;
+
+    public OrderPage()
+    {
+    }
+
+    public OrderPage(List<Order> orders, Integer nextCursor)
+    {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    // rows holds up to limit + 1 orders, newest first; the extra look-ahead row only signals that another page exists
+    public static OrderPage fromLookahead(List<Order> rows, int limit)
+    {
+        if (rows.size() <= limit)
+        {
+            return new OrderPage(rows, null);
+        }
+
+        List<Order> page = new ArrayList<>(rows.subList(0, limit));
+        return new OrderPage(page, page.get(page.size() - 1).getOrderId());
+    }
+
+    public List<Order> getOrders()
+    {
+        return orders;
+    }
+
+    public void setOrders(List<Order> orders)
+    {
+        this.orders = orders;
+    }
+
+    // the last order id of this page (pass it as after= for the next one); null when this is the last page
+    public Integer getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,92 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+    Where a queued checkout is (GET /orders/{id}/status). The id is the intake ticket; orderId is set once the
+    order exists.
+ */
+public class OrderStatus
+{
+    public static final String QUEUED = "queued";
+    public static final String PROCESSING = "processing";
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+
+    private final String id;
+    private final int userId;
+    private final long acceptedAt;
+    private volatile String status = QUEUED;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private volatile Integer orderId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private volatile String message;
+    private volatile long finishedAt;
+
+    public OrderStatus(String id, int userId, long acceptedAt)
+    {
+        this.id = id;
+        this.userId = userId;
+        this.acceptedAt = acceptedAt;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    @JsonIgnore
+    public int getUserId()
+    {
+        return userId;
+    }
+
+    @JsonIgnore
+    public long getAcceptedAt()
+    {
+        return acceptedAt;
+    }
+
+    // one of queued, processing, created, rejected (not enough stock, empty cart, no profile), failed (try again)
+    public String getStatus()
+    {
+        return status;
+    }
+
+    public Integer getOrderId()
+    {
+        return orderId;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    @JsonIgnore
+    public long getFinishedAt()
+    {
+        return finishedAt;
+    }
+
+    @JsonIgnore
+    public boolean isFinished()
+    {
+        return finishedAt != 0;
+    }
+
+    public void processing()
+    {
+        this.status = PROCESSING;
+    }
+
+    public void finish(String status, Integer orderId, String message)
+    {
+        this.orderId = orderId;
+        this.message = message;
+        this.status = status;
+        this.finishedAt = System.currentTimeMillis();
+    }
+}
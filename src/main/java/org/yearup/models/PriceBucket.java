@@ -0,0 +1,53 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+public class PriceBucket
+{
+    private BigDecimal min;
+    private BigDecimal max;
+    private long count;
+
+    public PriceBucket()
+    {
+    }
+
+    public PriceBucket(BigDecimal min, BigDecimal max, long count)
+    {
+        this.min = min;
+        this.max = max;
+        this.count = count;
+    }
+
+    // inclusive lower bound
+    public BigDecimal getMin()
+    {
+        return min;
+    }
+
+    public void setMin(BigDecimal min)
+    {
+        this.min = min;
+    }
+
+    // exclusive upper bound
+    public BigDecimal getMax()
+    {
+        return max;
+    }
+
+    public void setMax(BigDecimal max)
+    {
+        this.max = max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public void setCount(long count)
+    {
+        this.count = count;
+    }
+}
@@ -0,0 +1,87 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+    Opaque keyset cursor for paged product listings. It records the sort key and product_id of the last row
+    on a page, so the next page can seek straight past it instead of counting rows with OFFSET.
+ */
+public class ProductCursor
+{
+    private final ProductSort sort;
+    private final String value;
+    private final int productId;
+
+    public ProductCursor(ProductSort sort, String value, int productId)
+    {
+        this.sort = sort;
+        this.value = value;
+        this.productId = productId;
+    }
+
+    public static ProductCursor after(Product product, ProductSort sort)
+    {
+        String value = switch (sort)
+        {
+            case PRICE -> product.getPrice().toPlainString();
+            case NAME -> product.getName();
+            case PRODUCT_ID -> Integer.toString(product.getProductId());
+        };
+        return new ProductCursor(sort, value, product.getProductId());
+    }
+
+    public ProductSort getSort()
+    {
+        return sort;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public BigDecimal getPriceValue()
+    {
+        return new BigDecimal(value);
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public String encode()
+    {
+        String raw = sort.name() + ":" + productId + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor, ProductSort expectedSort)
+    {
+        try
+        {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            ProductSort sort = ProductSort.valueOf(parts[0]);
+            int productId = Integer.parseInt(parts[1]);
+
+            if (sort != expectedSort)
+            {
+                throw new IllegalArgumentException("Cursor was issued for sort " + sort);
+            }
+
+            ProductCursor decoded = new ProductCursor(sort, parts[2], productId);
+            if (sort == ProductSort.PRICE)
+            {
+                decoded.getPriceValue();
+            }
+            return decoded;
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
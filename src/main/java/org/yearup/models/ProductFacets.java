@@ -0,0 +1,83 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Counts per category, subcategory and price bucket for every product matching a search (not just one page).
+    Both the SQL and the in-memory paths feed it (category, subcategory, bucket, count) groups in a single pass.
+ */
+public class ProductFacets
+{
+    public static final BigDecimal DEFAULT_PRICE_STEP = new BigDecimal("50");
+
+    private final BigDecimal priceStep;
+    private final Map<Integer, Long> categories = new TreeMap<>();
+    private final Map<String, Long> subCategories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<Long, Long> buckets = new TreeMap<>();
+
+    public ProductFacets(BigDecimal priceStep)
+    {
+        this.priceStep = priceStep;
+    }
+
+    public void count(int categoryId, String subCategory, long bucket, long count)
+    {
+        countCategory(categoryId, count);
+        countSubCategory(subCategory, count);
+        countPriceBucket(bucket, count);
+    }
+
+    public void countCategory(int categoryId, long count)
+    {
+        categories.merge(categoryId, count, Long::sum);
+    }
+
+    public void countSubCategory(String subCategory, long count)
+    {
+        if (subCategory != null && !subCategory.isBlank())
+        {
+            subCategories.merge(subCategory, count, Long::sum);
+        }
+    }
+
+    public void countPriceBucket(long bucket, long count)
+    {
+        buckets.merge(bucket, count, Long::sum);
+    }
+
+    // bucket number of a price, i.e. FLOOR(price / priceStep)
+    public long bucketOf(BigDecimal price)
+    {
+        return price.divideToIntegralValue(priceStep).longValue();
+    }
+
+    public BigDecimal getPriceStep()
+    {
+        return priceStep;
+    }
+
+    public Map<Integer, Long> getCategories()
+    {
+        return categories;
+    }
+
+    public Map<String, Long> getSubCategories()
+    {
+        return subCategories;
+    }
+
+    public List<PriceBucket> getPrices()
+    {
+        List<PriceBucket> prices = new ArrayList<>(buckets.size());
+        for (Map.Entry<Long, Long> bucket : buckets.entrySet())
+        {
+            BigDecimal min = priceStep.multiply(BigDecimal.valueOf(bucket.getKey()));
+            prices.add(new PriceBucket(min, min.add(priceStep), bucket.getValue()));
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,38 @@
+package org.yearup.models;
+
+public class ProductImportError
+{
+    private int row;
+    private String message;
+
+    public ProductImportError()
+    {
+    }
+
+    public ProductImportError(int row, String message)
+    {
+        this.row = row;
+        this.message = message;
+    }
+
+    // 1-based data row (the CSV header is not counted; NDJSON rows are line numbers)
+    public int getRow()
+    {
+        return row;
+    }
+
+    public void setRow(int row)
+    {
+        this.row = row;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public void setMessage(String message)
+    {
+        this.message = message;
+    }
+}
@@ -0,0 +1,85 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportReport
+{
+    // a bad file could fail every row; the count stays exact but only this many are listed
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private int rowsRead;
+    private int imported;
+    private int failed;
+    private long elapsedMillis;
+    private List<ProductImportError> errors = new ArrayList<>();
+
+    public void rowRead()
+    {
+        rowsRead++;
+    }
+
+    public void imported(int count)
+    {
+        imported += count;
+    }
+
+    public void addError(int row, String message)
+    {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS)
+        {
+            errors.add(new ProductImportError(row, message));
+        }
+    }
+
+    public int getRowsRead()
+    {
+        return rowsRead;
+    }
+
+    public void setRowsRead(int rowsRead)
+    {
+        this.rowsRead = rowsRead;
+    }
+
+    public int getImported()
+    {
+        return imported;
+    }
+
+    public void setImported(int imported)
+    {
+        this.imported = imported;
+    }
+
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    public void setFailed(int failed)
+    {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis)
+    {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<ProductImportError> getErrors()
+    {
+        return errors;
+    }
+
+    public void setErrors(List<ProductImportError> errors)
+    {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,69 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductPage
+{
+    private List<Product> products = new ArrayList<>();
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ProductFacets facets;
+
+    public ProductPage()
+    {
+    }
+
+    public ProductPage(List<Product> products, String nextCursor)
+    {
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    // rows holds up to limit + 1 products; the extra look-ahead row only signals that another page exists
+    public static ProductPage fromLookahead(List<Product> rows, ProductSearch search)
+    {
+        if (rows.size() <= search.getLimit())
+        {
+            return new ProductPage(rows, null);
+        }
+
+        List<Product> page = new ArrayList<>(rows.subList(0, search.getLimit()));
+        Product last = page.get(page.size() - 1);
+        return new ProductPage(page, ProductCursor.after(last, search.getSort()).encode());
+    }
+
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    public void setProducts(List<Product> products)
+    {
+        this.products = products;
+    }
+
+    // null when this is the last page
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
+
+    // only present when the caller asked for facets
+    public ProductFacets getFacets()
+    {
+        return facets;
+    }
+
+    public void setFacets(ProductFacets facets)
+    {
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,172 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Locale;
+
+/*
+    Filters, sort order and page window for a paged product search. All filters are optional, exactly like
+    the parameters of ProductDao.search.
+ */
+public class ProductSearch
+{
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private Integer categoryId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private String subCategory;
+    private String query;
+    private Collection<Integer> productIds;
+    private ProductSort sort = ProductSort.PRODUCT_ID;
+    private ProductCursor after;
+    private int limit = DEFAULT_LIMIT;
+
+    public ProductSearch()
+    {
+    }
+
+    public ProductSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        this.categoryId = categoryId;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.subCategory = subCategory;
+    }
+
+    // parses the raw sort / after / limit query parameters; throws IllegalArgumentException for bad input
+    public void setPaging(String sort, String after, int limit)
+    {
+        setSort(ProductSort.fromParameter(sort));
+        setAfter(after == null || after.isBlank() ? null : ProductCursor.decode(after, this.sort));
+        setLimit(limit);
+    }
+
+    public Integer getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId)
+    {
+        this.categoryId = categoryId;
+    }
+
+    public BigDecimal getMinPrice()
+    {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice)
+    {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice()
+    {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice)
+    {
+        this.maxPrice = maxPrice;
+    }
+
+    public String getSubCategory()
+    {
+        return subCategory;
+    }
+
+    public void setSubCategory(String subCategory)
+    {
+        this.subCategory = subCategory;
+    }
+
+    // free text over name and description (q=); ranked by relevance when a text index is available
+    public String getQuery()
+    {
+        return query;
+    }
+
+    public void setQuery(String query)
+    {
+        this.query = query == null || query.isBlank() ? null : query;
+    }
+
+    // restricts the search to these products (null means no restriction)
+    public Collection<Integer> getProductIds()
+    {
+        return productIds;
+    }
+
+    public void setProductIds(Collection<Integer> productIds)
+    {
+        this.productIds = productIds;
+    }
+
+    // same filters without the text query, restricted to the given products (for index-resolved queries)
+    public ProductSearch withProductIds(Collection<Integer> productIds)
+    {
+        ProductSearch copy = new ProductSearch(categoryId, minPrice, maxPrice, subCategory);
+        copy.sort = sort;
+        copy.after = after;
+        copy.limit = limit;
+        copy.productIds = productIds;
+        return copy;
+    }
+
+    // the category / price / subcategory filters evaluated in memory, with the same meaning as the SQL
+    public boolean matches(Product product)
+    {
+        if (categoryId != null && product.getCategoryId() != categoryId)
+        {
+            return false;
+        }
+        if (minPrice != null && product.getPrice().compareTo(minPrice) < 0)
+        {
+            return false;
+        }
+        if (maxPrice != null && product.getPrice().compareTo(maxPrice) > 0)
+        {
+            return false;
+        }
+        if (subCategory != null && !subCategory.isBlank())
+        {
+            return product.getSubCategory() != null
+                    && product.getSubCategory().toLowerCase(Locale.ROOT).contains(subCategory.toLowerCase(Locale.ROOT));
+        }
+        return true;
+    }
+
+    public ProductSort getSort()
+    {
+        return sort;
+    }
+
+    public void setSort(ProductSort sort)
+    {
+        this.sort = sort == null ? ProductSort.PRODUCT_ID : sort;
+    }
+
+    public ProductCursor getAfter()
+    {
+        return after;
+    }
+
+    public void setAfter(ProductCursor after)
+    {
+        this.after = after;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    // clamps to 1..MAX_LIMIT so a single page can never grow with the catalog
+    public void setLimit(int limit)
+    {
+        this.limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
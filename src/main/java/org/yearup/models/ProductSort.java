@@ -0,0 +1,42 @@
+package org.yearup.models;
+
+import java.util.Locale;
+
+public enum ProductSort
+{
+    PRICE("price"),
+    NAME("name"),
+    PRODUCT_ID("product_id");
+
+    private final String column;
+
+    ProductSort(String column)
+    {
+        this.column = column;
+    }
+
+    public String getColumn()
+    {
+        return column;
+    }
+
+    // accepts the query string spelling: price, name, product_id (or productId)
+    public static ProductSort fromParameter(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return PRODUCT_ID;
+        }
+
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (ProductSort sort : values())
+        {
+            if (sort.column.equals(normalized) || sort.column.replace("_", "").equals(normalized))
+            {
+                return sort;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown sort: " + value);
+    }
+}
@@ -0,0 +1,41 @@
+package org.yearup.models;
+
+public class ProductSuggestion
+{
+    public static final String PRODUCT = "product";
+    public static final String SUBCATEGORY = "subcategory";
+
+    private String text;
+    private String type;
+
+    public ProductSuggestion()
+    {
+    }
+
+    public ProductSuggestion(String text, String type)
+    {
+        this.text = text;
+        this.type = type;
+    }
+
+    public String getText()
+    {
+        return text;
+    }
+
+    public void setText(String text)
+    {
+        this.text = text;
+    }
+
+    // "product" for a product name, "subcategory" for a subcategory
+    public String getType()
+    {
+        return type;
+    }
+
+    public void setType(String type)
+    {
+        this.type = type;
+    }
+}
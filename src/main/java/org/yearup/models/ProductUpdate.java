@@ -0,0 +1,66 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+/*
+    One row of a bulk partial update (PATCH /products). Only the fields that are set are written.
+ */
+public class ProductUpdate
+{
+    private int productId;
+    private BigDecimal price;
+    private Integer stock;
+    private Boolean featured;
+
+    public ProductUpdate()
+    {
+    }
+
+    public ProductUpdate(int productId, BigDecimal price, Integer stock, Boolean featured)
+    {
+        this.productId = productId;
+        this.price = price;
+        this.stock = stock;
+        this.featured = featured;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public BigDecimal getPrice()
+    {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price)
+    {
+        this.price = price;
+    }
+
+    public Integer getStock()
+    {
+        return stock;
+    }
+
+    public void setStock(Integer stock)
+    {
+        this.stock = stock;
+    }
+
+    public Boolean getFeatured()
+    {
+        return featured;
+    }
+
+    public void setFeatured(Boolean featured)
+    {
+        this.featured = featured;
+    }
+}
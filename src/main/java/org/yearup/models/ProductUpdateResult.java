@@ -0,0 +1,58 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class ProductUpdateResult
+{
+    public static final String UPDATED = "updated";
+    public static final String NOT_FOUND = "not_found";
+    public static final String INVALID = "invalid";
+    public static final String FAILED = "failed";
+
+    private int productId;
+    private String status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String message;
+
+    public ProductUpdateResult()
+    {
+    }
+
+    public ProductUpdateResult(int productId, String status, String message)
+    {
+        this.productId = productId;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    // one of updated, not_found, invalid, failed
+    public String getStatus()
+    {
+        return status;
+    }
+
+    public void setStatus(String status)
+    {
+        this.status = status;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public void setMessage(String message)
+    {
+        this.message = message;
+    }
+}
@@ -35,6 +35,37 @@ public class ShoppingCart
 
     public BigDecimal getTotal()
     {
+        if (items.isEmpty())
+        {
+            return BigDecimal.ZERO;
+        }
+
+        // sum in cents when every line allows it; one BigDecimal for the whole cart
+        long totalCents = 0;
+        boolean inCents = true;
+        for (ShoppingCartItem item : items.values())
+        {
+            long cents = item.lineTotalCents();
+            if (cents == ShoppingCartItem.NOT_IN_CENTS)
+            {
+                inCents = false;
+                break;
+            }
+            try
+            {
+                totalCents = Math.addExact(totalCents, cents);
+            }
+            catch (ArithmeticException e)
+            {
+                inCents = false;
+                break;
+            }
+        }
+        if (inCents)
+        {
+            return BigDecimal.valueOf(totalCents, 2);
+        }
+
         BigDecimal total = items.values()
                                 .stream()
                                 .map(i -> i.getLineTotal())
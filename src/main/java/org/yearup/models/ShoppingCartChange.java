@@ -0,0 +1,41 @@
+package org.yearup.models;
+
+/*
+    One line of a batched cart change (PATCH /cart): sets the product's quantity, and 0 removes it.
+    quantity is an Integer so a line that leaves it out is rejected instead of read as 0 (a removal).
+ */
+public class ShoppingCartChange
+{
+    private int productId;
+    private Integer quantity;
+
+    public ShoppingCartChange()
+    {
+    }
+
+    public ShoppingCartChange(int productId, Integer quantity)
+    {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity()
+    {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity)
+    {
+        this.quantity = quantity;
+    }
+}
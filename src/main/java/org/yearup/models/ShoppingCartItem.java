@@ -6,10 +6,17 @@ import java.math.BigDecimal;
 
 public class ShoppingCartItem
 {
+    // lineTotalCents() when the line needs the BigDecimal path
+    static final long NOT_IN_CENTS = Long.MIN_VALUE;
+
     private Product product = null;
     private int quantity = 1;
     private BigDecimal discountPercent = BigDecimal.ZERO;
 
+    // the product price in cents, worked out once per price object
+    private BigDecimal centsPrice = null;
+    private long unitCents = NOT_IN_CENTS;
+
 
     public Product getProduct()
     {
@@ -49,6 +56,12 @@ public class ShoppingCartItem
 
     public BigDecimal getLineTotal()
     {
+        long cents = lineTotalCents();
+        if (cents != NOT_IN_CENTS)
+        {
+            return BigDecimal.valueOf(cents, 2);
+        }
+
         BigDecimal basePrice = product.getPrice();
         BigDecimal quantity = new BigDecimal(this.quantity);
 
@@ -57,4 +70,34 @@ public class ShoppingCartItem
 
         return subTotal.subtract(discountAmount);
     }
+
+    // The line total in cents when that gives exactly what the BigDecimal arithmetic gives: a price with scale 2
+    // (as read from DECIMAL(10,2)) and no discount. A discount keeps the unrounded BigDecimal result, so it stays
+    // on that path.
+    long lineTotalCents()
+    {
+        BigDecimal price = product.getPrice();
+        if (price != centsPrice)
+        {
+            centsPrice = price;
+            unitCents = price != null && price.scale() == 2 && price.unscaledValue().bitLength() < 63
+                    ? price.unscaledValue().longValue()
+                    : NOT_IN_CENTS;
+        }
+
+        if (unitCents == NOT_IN_CENTS || discountPercent.signum() != 0 || discountPercent.scale() > 0)
+        {
+            return NOT_IN_CENTS;
+        }
+
+        try
+        {
+            return Math.multiplyExact(unitCents, quantity);
+        }
+        catch (ArithmeticException e)
+        {
+            // overflow (never for real prices and quantities) also takes the BigDecimal path
+            return NOT_IN_CENTS;
+        }
+    }
 }
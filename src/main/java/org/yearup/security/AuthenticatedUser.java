@@ -0,0 +1,26 @@
+package org.yearup.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Spring Security principal that also carries the database user id. It is created at login from the users row and
+ * rebuilt from the "uid" claim of every verified JWT, so controllers can take it with
+ * {@code @AuthenticationPrincipal AuthenticatedUser user} instead of looking the user up by name.
+ */
+public class AuthenticatedUser extends User {
+
+    private final int userId;
+
+    public AuthenticatedUser(int userId, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,13 @@
+package org.yearup.security;
+
+/**
+ * Thrown when the password hashing executor cannot take more work; answered with 503 and Retry-After.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 4127530861194036512L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -13,6 +13,7 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Filters incoming requests and installs a Spring Security principal if a header corresponding to a valid user is
@@ -37,10 +38,14 @@ public class JWTFilter extends GenericFilterBean {
         String jwt = resolveToken(httpServletRequest);
         String requestURI = httpServletRequest.getRequestURI();
 
-        if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-            Authentication authentication = tokenProvider.getAuthentication(jwt);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            LOG.debug("set Authentication to custom security context for '{}', uri: {}", authentication.getName(), requestURI);
+        // one verification per token: resolveAuthentication parses once and caches the result until expiry
+        Optional<Authentication> authentication = StringUtils.hasText(jwt)
+                ? tokenProvider.resolveAuthentication(jwt)
+                : Optional.empty();
+
+        if (authentication.isPresent()) {
+            SecurityContextHolder.getContext().setAuthentication(authentication.get());
+            LOG.debug("set Authentication to custom security context for '{}', uri: {}", authentication.get().getName(), requestURI);
         } else {
             LOG.debug("no valid JWT token found, uri: {}", requestURI);
         }
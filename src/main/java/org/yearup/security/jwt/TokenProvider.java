@@ -1,6 +1,8 @@
 package org.yearup.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -15,11 +17,19 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.yearup.data.cache.LruTtlCache;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.security.AuthenticatedUser;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
-import java.util.Arrays;
-import java.util.Collection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
@@ -29,19 +39,31 @@ public class TokenProvider implements InitializingBean
     private final Logger logger = LoggerFactory.getLogger(TokenProvider.class);
 
     private static final String AUTHORITIES_KEY = "auth";
+    private static final String USER_ID_KEY = "uid";
 
     private final String secret;
     private final long tokenTimeout;
+    private final long verifiedCacheMaxTtl;
+
+    // SHA-256 of the token -> the Authentication it verified to, until the token expires (or the max TTL passes)
+    private final LruTtlCache<String, Authentication> verifiedTokens;
 
     private Key key;
+    private JwtParser jwtParser;
 
 
     public TokenProvider(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds)
+            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds,
+            @Value("${jwt.verified-cache.max-size:10000}") int verifiedCacheMaxSize,
+            @Value("${jwt.verified-cache.max-ttl-seconds:300}") long verifiedCacheMaxTtlSeconds,
+            MetricsRegistry metricsRegistry)
     {
         this.secret = secret;
         this.tokenTimeout = tokenTimeoutSeconds * 1000;
+        this.verifiedCacheMaxTtl = verifiedCacheMaxTtlSeconds * 1000;
+        this.verifiedTokens = new LruTtlCache<>(verifiedCacheMaxSize, 0, 0);
+        metricsRegistry.register("jwtVerifiedCache", verifiedTokens::stats);
     }
 
     @Override
@@ -49,6 +71,8 @@ public class TokenProvider implements InitializingBean
     {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        // the parser is immutable and thread-safe, so one instance serves every request
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe)
@@ -60,44 +84,92 @@ public class TokenProvider implements InitializingBean
         long now = (new Date()).getTime();
         Date expirationDate = new Date(now + this.tokenTimeout);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(authentication.getName())
-                .claim(AUTHORITIES_KEY, authorities)
+                .claim(AUTHORITIES_KEY, authorities);
+
+        // the user id (with the role in AUTHORITIES_KEY) lets requests skip the users lookup
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user)
+        {
+            builder.claim(USER_ID_KEY, user.getUserId());
+        }
+
+        return builder
                 .signWith(key, SignatureAlgorithm.HS512)
                 .setExpiration(expirationDate)
                 .compact();
     }
 
-    public Authentication getAuthentication(String token)
+    /**
+     * Verifies the token and returns the Authentication it carries, or empty if the token is invalid or expired.
+     * The signature is checked once per token: afterwards the Authentication is served from a bounded cache keyed
+     * by the token's hash, never past the token's own expiry.
+     */
+    public Optional<Authentication> resolveAuthentication(String token)
     {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String tokenHash = hash(token);
+        Authentication cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null)
+        {
+            return Optional.of(cached);
+        }
+
+        Claims claims;
+        try
+        {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        }
+        catch (Exception e)
+        {
+            logger.info("Token Invalid.");
+            logger.trace("Token Invalid trace: {}.", e.toString());
+            return Optional.empty();
+        }
 
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+        Authentication authentication = toAuthentication(claims, token);
 
-        User principal = new User(claims.getSubject(), "", authorities);
+        long expiresIn = claims.getExpiration() == null
+                ? verifiedCacheMaxTtl
+                : claims.getExpiration().getTime() - System.currentTimeMillis();
+        verifiedTokens.put(tokenHash, authentication, Math.min(expiresIn, verifiedCacheMaxTtl));
+
+        return Optional.of(authentication);
+    }
+
+    private static Authentication toAuthentication(Claims claims, String token)
+    {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        String claim = claims.get(AUTHORITIES_KEY, String.class);
+        if (claim != null)
+        {
+            for (String authority : claim.split(","))
+            {
+                if (!authority.isEmpty())
+                {
+                    authorities.add(new SimpleGrantedAuthority(authority));
+                }
+            }
+        }
+
+        // tokens issued before the uid claim existed still authenticate, just without a user id
+        Integer userId = claims.get(USER_ID_KEY, Integer.class);
+        User principal = userId == null
+                ? new User(claims.getSubject(), "", authorities)
+                : new AuthenticatedUser(userId, claims.getSubject(), "", authorities);
 
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
-    public boolean validateToken(String authToken)
+    private static String hash(String token)
     {
         try
         {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
         }
-        catch (Exception e)
+        catch (NoSuchAlgorithmException e)
         {
-            logger.info("Token Invalid.");
-            logger.trace("Token Invalid trace: {}.", e.toString());
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return false;
     }
 }
@@ -0,0 +1,176 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ProfileDao;
+import org.yearup.data.UserDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Product;
+import org.yearup.models.User;
+import org.yearup.security.BoundedPasswordEncoder;
+import org.yearup.security.UserModelDetailsService;
+import org.yearup.security.jwt.TokenProvider;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+    Login flood: CLIENTS callers hammer POST /login (real BCrypt, behind the same BoundedPasswordEncoder the
+    application runs with one hashing thread) while a shopper keeps reading the catalog. Every login must either
+    succeed or be turned away with 503 + Retry-After, and catalog reads must not queue behind the hashing.
+ */
+class LoginFloodTest
+{
+    private static final int CLIENTS = 32;
+    private static final int LOGINS = 400;
+    private static final int CATALOG_READS = 200;
+    private static final long CATALOG_P99_BOUND_MILLIS = 250;
+
+    private BoundedPasswordEncoder passwordEncoder;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        // a timeout no queued hash reaches, so every 503 here comes from a full queue
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(), 1, 4, 60_000);
+
+        UserDao userDao = mock(UserDao.class);
+        when(userDao.getByUserName("shopper")).thenReturn(
+                new User(7, "shopper", new BCryptPasswordEncoder().encode("password"), "ROLE_USER"));
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new UserModelDetailsService(userDao));
+        provider.setPasswordEncoder(passwordEncoder);
+        AuthenticationManagerBuilder authentication = new AuthenticationManagerBuilder(new ObjectPostProcessor<>()
+        {
+            @Override
+            public <O> O postProcess(O object)
+            {
+                return object;
+            }
+        });
+        authentication.authenticationProvider(provider);
+        authentication.build();
+
+        TokenProvider tokenProvider = new TokenProvider(Base64.getEncoder().encodeToString(new byte[64]), 3600,
+                100, 300, new MetricsRegistry());
+        tokenProvider.afterPropertiesSet();
+
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.version(1)).thenReturn(1L);
+        when(productDao.getById(1)).thenReturn(new Product(1, "Smartphone", new BigDecimal("499.99"), 1,
+                "A powerful and feature-rich smartphone for all your communication needs.", "Black", 50, false, "smartphone.jpg"));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new AuthenticationController(tokenProvider, authentication, userDao, mock(ProfileDao.class), 1),
+                new ProductsController(productDao, new ProductJsonStreamer(new ObjectMapper()), mock(ProductImporter.class))
+        ).build();
+    }
+
+    @AfterEach
+    public void shutdown()
+    {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    public void login_shouldShedTheFloodWith503_andKeepTheCatalogFast() throws Exception
+    {
+        // arrange: one login first, which also makes the provider hash its user-not-found dummy password
+        assertEquals(200, login().getStatus());
+        long hashesBefore = passwordEncoder.stats().get("hashes");
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> logins = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++)
+        {
+            logins.add(executor.submit(() -> {
+                start.await();
+                return login();
+            }));
+        }
+        Future<long[]> catalog = executor.submit(() -> {
+            start.await();
+            long[] latencies = new long[CATALOG_READS];
+            for (int i = 0; i < CATALOG_READS; i++)
+            {
+                long begun = System.nanoTime();
+                assertEquals(200, mockMvc.perform(get("/products/1")).andReturn().getResponse().getStatus());
+                latencies[i] = System.nanoTime() - begun;
+            }
+            return latencies;
+        });
+
+        // act
+        start.countDown();
+        int accepted = 0;
+        int shed = 0;
+        for (Future<MockHttpServletResponse> login : logins)
+        {
+            MockHttpServletResponse response = login.get(120, TimeUnit.SECONDS);
+            if (response.getStatus() == 200)
+            {
+                accepted++;
+            }
+            else
+            {
+                // assert: anything not logged in was turned away politely, never with a 500
+                assertEquals(503, response.getStatus());
+                assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+                shed++;
+            }
+        }
+        long[] latencies = catalog.get(120, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // assert
+        assertEquals(LOGINS, accepted + shed);
+        assertTrue(accepted > 0, "Because the hashing pool keeps serving logins through the flood.");
+        assertTrue(shed > 0, "Because " + CLIENTS + " callers cannot all fit in one thread and four queue slots.");
+        assertEquals(accepted, passwordEncoder.stats().get("hashes") - hashesBefore,
+                "Because a shed login must not have burned a BCrypt round.");
+        assertEquals(shed, passwordEncoder.stats().get("rejected"));
+
+        Arrays.sort(latencies);
+        long p99Millis = latencies[(int) (latencies.length * 0.99)] / 1_000_000;
+        assertTrue(p99Millis < CATALOG_P99_BOUND_MILLIS,
+                "Because catalog reads should not wait for password hashing, p99 was " + p99Millis + " ms.");
+    }
+
+    private MockHttpServletResponse login() throws Exception
+    {
+        return mockMvc.perform(post("/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"shopper\",\"password\":\"password\"}"))
+                .andReturn().getResponse();
+    }
+}
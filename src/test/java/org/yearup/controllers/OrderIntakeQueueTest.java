@@ -0,0 +1,125 @@
+package org.yearup.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.CheckoutResult;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Order;
+import org.yearup.models.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeQueueTest
+{
+    private OrderDao orderDao;
+    private CountDownLatch firstGroupStarted;
+    private CountDownLatch release;
+    private OrderIntakeQueue intake;
+
+    @BeforeEach
+    public void setup()
+    {
+        orderDao = mock(OrderDao.class);
+        firstGroupStarted = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+
+        // every user gets an order (user id * 100), except user 3, who is out of stock; each group waits for release
+        when(orderDao.checkoutAll(anyList())).thenAnswer(call -> {
+            firstGroupStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<CheckoutResult> results = new ArrayList<>();
+            for (Integer userId : call.<List<Integer>>getArgument(0))
+            {
+                results.add(userId == 3
+                        ? CheckoutResult.failed(new InsufficientStockException(List.of(7)))
+                        : CheckoutResult.created(new Order(userId * 100, userId, LocalDateTime.now(),
+                                "1 Main Street", "Dallas", "TX", "75051", BigDecimal.ZERO)));
+            }
+            return results;
+        });
+
+        // one writer, groups of up to 10, room for 2 waiting checkouts
+        intake = new OrderIntakeQueue(orderDao, mock(ShoppingCartDao.class), mock(ProductDao.class),
+                new MetricsRegistry(), true, 2, 1, 10, 600);
+        intake.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void shutdown() throws InterruptedException
+    {
+        release.countDown();
+        intake.destroy();
+    }
+
+    @Test
+    public void submit_shouldQueueUpToCapacity_andWriteTheWaitingCheckoutsAsOneGroup() throws Exception
+    {
+        // arrange: the writer is busy with user 1
+        OrderStatus first = intake.submit(1);
+        assertTrue(firstGroupStarted.await(5, TimeUnit.SECONDS));
+
+        // act
+        OrderStatus second = intake.submit(2);
+        OrderStatus third = intake.submit(3);
+        OrderStatus overflow = intake.submit(4);
+        release.countDown();
+
+        // assert: the queue held two, the fourth was turned away, and the two waiting ones were written together
+        assertNull(overflow);
+        waitUntilFinished(first, second, third);
+        assertEquals(OrderStatus.CREATED, first.getStatus());
+        assertEquals(100, first.getOrderId());
+        assertEquals(OrderStatus.CREATED, second.getStatus());
+        assertEquals(OrderStatus.REJECTED, third.getStatus());
+        assertSame(second, intake.status(second.getId()));
+        verify(orderDao).checkoutAll(List.of(2, 3));
+    }
+
+    @Test
+    public void submit_shouldReturnTheSameTicket_whileTheUsersCheckoutIsUnfinished() throws Exception
+    {
+        // arrange
+        intake.submit(1);
+        assertTrue(firstGroupStarted.await(5, TimeUnit.SECONDS));
+
+        // act
+        OrderStatus ticket = intake.submit(2);
+        OrderStatus again = intake.submit(2);
+
+        // assert
+        assertNotNull(ticket);
+        assertSame(ticket, again);
+    }
+
+    private static void waitUntilFinished(OrderStatus... tickets) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (OrderStatus ticket : tickets)
+        {
+            while (!ticket.isFinished() && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
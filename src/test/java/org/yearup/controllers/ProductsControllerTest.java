@@ -0,0 +1,117 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ProductsControllerTest
+{
+    private ProductDao productDao;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup()
+    {
+        productDao = mock(ProductDao.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        ProductsController controller = new ProductsController(productDao,
+                new ProductJsonStreamer(objectMapper), mock(ProductImporter.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void getById_shouldReturn304_withoutReadingTheDao_whenEtagMatches() throws Exception
+    {
+        // arrange
+        Product product = new Product(1, "Smartphone", new BigDecimal("499.99"), 1,
+                "A powerful and feature-rich smartphone for all your communication needs.", "Black", 50, false, "smartphone.jpg");
+        when(productDao.version(1)).thenReturn(3L);
+        when(productDao.getById(1)).thenReturn(product);
+
+        // act
+        MvcResult first = mockMvc.perform(get("/products/1")).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult repeat = mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+
+        // assert
+        int bytesSaved = first.getResponse().getContentAsByteArray().length - repeat.getResponse().getContentAsByteArray().length;
+        assertNotNull(etag, "Because catalog reads carry an ETag.");
+        assertEquals(200, first.getResponse().getStatus());
+        assertEquals(304, repeat.getResponse().getStatus(), "Because the product has not changed.");
+        assertEquals(0, repeat.getResponse().getContentAsByteArray().length);
+        assertTrue(bytesSaved > 0);
+        verify(productDao, times(1)).getById(1);
+    }
+
+    @Test
+    public void search_shouldReturn200_whenVersionChanged() throws Exception
+    {
+        // arrange
+        when(productDao.version()).thenReturn(7L, 7L, 8L);
+        when(productDao.search(any(), any(), any(), any())).thenReturn(List.of());
+
+        // act
+        String etag = mockMvc.perform(get("/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        int unchanged = mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse().getStatus();
+        int changed = mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse().getStatus();
+
+        // assert
+        assertEquals(304, unchanged);
+        assertEquals(200, changed, "Because a product was written since the ETag was issued.");
+        verify(productDao, times(2)).search(any(), any(), any(), any());
+    }
+
+    @Test
+    public void search_withQuery_shouldReturnEveryMatch_notJustTheFirstPage() throws Exception
+    {
+        // arrange: two pages of matches behind the paged search
+        when(productDao.version()).thenReturn(1L);
+        String cursor = new ProductCursor(ProductSort.PRODUCT_ID, "0", 1).encode();
+        List<ProductCursor> cursors = new ArrayList<>();
+        when(productDao.searchPage(any(ProductSearch.class))).thenAnswer(invocation -> {
+            ProductSearch search = invocation.getArgument(0);
+            cursors.add(search.getAfter());
+            return search.getAfter() == null
+                    ? new ProductPage(List.of(product(1)), cursor)
+                    : new ProductPage(List.of(product(2)), null);
+        });
+
+        // act
+        String body = mockMvc.perform(get("/products").param("q", "phone")).andReturn().getResponse().getContentAsString();
+
+        // assert
+        assertTrue(body.contains("\"productId\":1") && body.contains("\"productId\":2"),
+                "Because a plain q= search should not stop at one page.");
+        assertEquals(2, cursors.size());
+        assertEquals(1, cursors.get(1).getProductId());
+    }
+
+    private static Product product(int id)
+    {
+        return new Product(id, "Phone " + id, new BigDecimal("99.99"), 1, "", "Black", 5, false, "");
+    }
+}
@@ -0,0 +1,84 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoalescingProductDaoTest
+{
+    @Test
+    public void search_shouldGiveEachWaiterItsOwnProducts() throws Exception
+    {
+        // arrange
+        SingleFlight<List<Object>, Object> flights = new SingleFlight<>();
+        ProductDao database = mock(ProductDao.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(database.search(1, null, null, null)).thenAnswer(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ArrayList<>(List.of(product(1, "Smartphone")));
+        });
+        CoalescingProductDao dao = new CoalescingProductDao(database, flights);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // act
+        Future<List<Product>> first = executor.submit(() -> dao.search(1, null, null, null));
+        Future<List<Product>> second = executor.submit(() -> dao.search(1, null, null, null));
+        while (flights.stats().get("collapsed") < 1)
+        {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        List<Product> mine = first.get(5, TimeUnit.SECONDS);
+        List<Product> theirs = second.get(5, TimeUnit.SECONDS);
+        mine.get(0).setName("Changed");
+
+        // assert
+        verify(database, times(1)).search(1, null, null, null);
+        assertNotSame(mine, theirs);
+        assertNotSame(mine.get(0), theirs.get(0), "Because each waiter gets its own copy of every product.");
+        assertEquals("Smartphone", theirs.get(0).getName(), "Because one caller's change must not reach the others.");
+        assertThrows(UnsupportedOperationException.class, () -> theirs.add(product(2, "Laptop")),
+                "Because the list handed out is unmodifiable.");
+        executor.shutdown();
+    }
+
+    @Test
+    public void getById_shouldReturnACopy_ofTheLoadedProduct()
+    {
+        // arrange
+        Product loaded = product(1, "Smartphone");
+        ProductDao database = mock(ProductDao.class);
+        when(database.getById(1)).thenReturn(loaded);
+        CoalescingProductDao dao = new CoalescingProductDao(database, new SingleFlight<>());
+
+        // act
+        Product actual = dao.getById(1);
+
+        // assert
+        assertNotSame(loaded, actual);
+        assertEquals(loaded.getName(), actual.getName());
+        assertEquals(loaded.getPrice(), actual.getPrice());
+    }
+
+    private static Product product(int productId, String name)
+    {
+        return new Product(productId, name, new BigDecimal("499.99"), 1, "", "Black", 10, false, "");
+    }
+}
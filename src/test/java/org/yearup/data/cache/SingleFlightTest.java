@@ -0,0 +1,84 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SingleFlightTest
+{
+    @Test
+    public void execute_shouldRunTheLoaderOnce_forConcurrentIdenticalCalls() throws Exception
+    {
+        // arrange
+        SingleFlight<String, Object> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        // act
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++)
+        {
+            futures.add(executor.submit(() -> flights.execute("cat=1", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return result;
+            })));
+        }
+
+        // hold the first load until every other caller has joined it
+        while (flights.stats().get("collapsed") < callers - 1)
+        {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // assert
+        for (Future<Object> future : futures)
+        {
+            assertSame(result, future.get(5, TimeUnit.SECONDS), "Because every waiter gets the shared result.");
+        }
+        assertEquals(1, loads.get(), "Because identical concurrent calls share one load.");
+        assertEquals(0L, flights.stats().get("inFlight"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void execute_shouldLoadAgain_afterTheCallCompleted()
+    {
+        // arrange
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        // act
+        flights.execute("id=1", loads::incrementAndGet);
+        int second = flights.execute("id=1", loads::incrementAndGet);
+
+        // assert
+        assertEquals(2, second, "Because results are not kept once the call completes.");
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartChange;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindShoppingCartDaoTest
+{
+    private RecordingCartDao database;
+    private WriteBehindShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new RecordingCartDao();
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.getById(anyInt())).thenAnswer(call -> product(call.getArgument(0)));
+
+        // no background flush, so the tests decide when writes happen
+        dao = new WriteBehindShoppingCartDao(database, productDao, 0, 1000, 60_000);
+    }
+
+    @Test
+    public void changes_shouldReachTheDatabase_inOneBatchOnFlush()
+    {
+        // act
+        dao.addProduct(1, 10);
+        dao.addProduct(1, 10);
+        dao.addProduct(2, 20);
+
+        // assert: nothing written yet, then both carts in one saveAll
+        assertTrue(database.saved.isEmpty());
+
+        dao.flushAll();
+
+        assertEquals(1, database.saved.size());
+        assertEquals(Map.of(10, 2), database.saved.get(0).get(1));
+        assertEquals(Map.of(20, 1), database.saved.get(0).get(2));
+    }
+
+    @Test
+    public void failedFlush_shouldKeepTheCartsDirty_untilAFlushSucceeds()
+    {
+        // arrange
+        dao.addProduct(1, 10);
+        database.failNext = true;
+
+        // act
+        assertThrows(RuntimeException.class, () -> dao.flushAll());
+        dao.addProduct(1, 11);
+        dao.flushAll();
+
+        // assert: the retry carries the change from before the failure as well as the later one
+        assertEquals(Map.of(10, 1, 11, 1), database.saved.get(0).get(1));
+        assertEquals(0L, dao.stats().get("dirtyCarts"));
+    }
+
+    @Test
+    public void shutdown_shouldFlushEverything()
+    {
+        // arrange
+        dao.addProduct(3, 30);
+        dao.clear(4);
+
+        // act
+        dao.shutdown();
+
+        // assert
+        assertEquals(Map.of(30, 1), database.saved.get(0).get(3));
+        assertEquals(Map.of(), database.saved.get(0).get(4));
+    }
+
+    @Test
+    public void flush_shouldWriteOnlyThatUsersCart()
+    {
+        // arrange
+        dao.addProduct(1, 10);
+        dao.addProduct(2, 20);
+
+        // act
+        dao.flush(1);
+
+        // assert
+        assertEquals(1, database.saved.size());
+        assertEquals(Map.of(1, Map.of(10, 1)), database.saved.get(0));
+        assertEquals(1L, dao.stats().get("dirtyCarts"));
+    }
+
+    private static Product product(int productId)
+    {
+        return new Product(productId, "product " + productId, new BigDecimal("1.00"), 1, "", "", 10, false, "");
+    }
+
+    // stands in for MySqlShoppingCartDao: every cart starts empty and each saveAll call is recorded
+    private static class RecordingCartDao implements ShoppingCartDao
+    {
+        final List<Map<Integer, Map<Integer, Integer>>> saved = new ArrayList<>();
+        boolean failNext;
+
+        @Override
+        public ShoppingCart getByUserId(int userId)
+        {
+            return new ShoppingCart();
+        }
+
+        @Override
+        public boolean addProduct(int userId, int productId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean updateQuantity(int userId, int productId, int quantity)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear(int userId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean applyChanges(int userId, List<ShoppingCartChange> changes)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveAll(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+        {
+            if (failNext)
+            {
+                failNext = false;
+                throw new RuntimeException("database unavailable");
+            }
+            saved.add(new HashMap<>(quantitiesByUser));
+        }
+
+        @Override
+        public void flush(int userId)
+        {
+        }
+
+        @Override
+        public void evict(int userId)
+        {
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartChange;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/*
+    Cart writes against a fake database that takes ROUND_TRIP_MILLIS per call: THREADS shoppers add products while
+    another thread calls flushAll every few milliseconds, and after shutdown the fake must hold every single add.
+    The benchmark (mvn test -Pbenchmark) also runs the same adds straight against the fake and compares the rates.
+ */
+class WriteBehindShoppingCartLoadTest
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindShoppingCartLoadTest.class);
+
+    private static final int THREADS = 8;
+    private static final int USERS = 40;
+    private static final int PRODUCTS = 5;
+    private static final long ROUND_TRIP_MILLIS = 2;
+
+    @Test
+    public void flushAllAndShutdown_shouldLoseNoChange_underConcurrentAdds() throws Exception
+    {
+        // act / assert
+        writeBehindAddsPerSecond(250);
+    }
+
+    @Tag("benchmark")
+    @Test
+    public void writeBehind_shouldOutpaceSynchronousWrites() throws Exception
+    {
+        // arrange
+        int ops = 1000;
+        SlowCartDao synchronous = new SlowCartDao();
+
+        // act
+        double synchronousRate = addsPerSecond(synchronous, ops);
+        double writeBehindRate = writeBehindAddsPerSecond(ops);
+        LOG.info("{} cart adds by {} threads: {}/s synchronous, {}/s write-behind", THREADS * ops, THREADS,
+                Math.round(synchronousRate), Math.round(writeBehindRate));
+
+        // assert
+        assertEquals(expected(ops), synchronous.table);
+        assertTrue(writeBehindRate > 3 * synchronousRate, "Because write-behind should not pay a round trip per add.");
+    }
+
+    // the adds through WriteBehindShoppingCartDao while flushAll runs alongside; checks nothing was lost
+    private static double writeBehindAddsPerSecond(int ops) throws Exception
+    {
+        // stub only: a recording mock would be the slowest part of an in-memory add
+        ProductDao productDao = mock(ProductDao.class, withSettings().stubOnly());
+        when(productDao.getById(anyInt())).thenAnswer(call -> product(call.getArgument(0)));
+        SlowCartDao database = new SlowCartDao();
+        WriteBehindShoppingCartDao writeBehind = new WriteBehindShoppingCartDao(database, productDao, 20, 1000, 60_000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        Future<?> flushing = flusher.submit(() -> {
+            while (running.get())
+            {
+                writeBehind.flushAll();
+                Thread.sleep(5);
+            }
+            return null;
+        });
+        double rate = addsPerSecond(writeBehind, ops);
+        running.set(false);
+        flushing.get(30, TimeUnit.SECONDS);
+        flusher.shutdown();
+        writeBehind.shutdown();
+
+        assertEquals(expected(ops), database.table, "Because neither flushAll nor shutdown may drop a change.");
+        return rate;
+    }
+
+    // THREADS shoppers released together, each adding ops products spread over USERS carts
+    private static double addsPerSecond(ShoppingCartDao dao, int ops) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> shoppers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++)
+        {
+            int first = thread * ops;
+            shoppers.add(executor.submit(() -> {
+                start.await();
+                for (int op = first; op < first + ops; op++)
+                {
+                    assertTrue(dao.addProduct(userId(op), productId(op)));
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> shopper : shoppers)
+        {
+            shopper.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        return THREADS * ops / seconds;
+    }
+
+    private static Map<Integer, Map<Integer, Integer>> expected(int ops)
+    {
+        Map<Integer, Map<Integer, Integer>> expected = new HashMap<>();
+        for (int op = 0; op < THREADS * ops; op++)
+        {
+            expected.computeIfAbsent(userId(op), id -> new HashMap<>()).merge(productId(op), 1, Integer::sum);
+        }
+        return expected;
+    }
+
+    private static int userId(int op)
+    {
+        return 1 + op % USERS;
+    }
+
+    private static int productId(int op)
+    {
+        return 1 + (op / USERS) % PRODUCTS;
+    }
+
+    private static Product product(int productId)
+    {
+        return new Product(productId, "product " + productId, new BigDecimal("1.00"), 1, "", "", 10, false, "");
+    }
+
+    // stands in for MySqlShoppingCartDao: one sleep per call for the round trip, carts held per user
+    private static class SlowCartDao implements ShoppingCartDao
+    {
+        final Map<Integer, Map<Integer, Integer>> table = new ConcurrentHashMap<>();
+
+        @Override
+        public ShoppingCart getByUserId(int userId)
+        {
+            roundTrip();
+            ShoppingCart cart = new ShoppingCart();
+            table.getOrDefault(userId, Map.of()).forEach((productId, quantity) -> {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(product(productId));
+                item.setQuantity(quantity);
+                cart.add(item);
+            });
+            return cart;
+        }
+
+        @Override
+        public boolean addProduct(int userId, int productId)
+        {
+            roundTrip();
+            table.compute(userId, (id, cart) -> {
+                Map<Integer, Integer> updated = cart == null ? new HashMap<>() : new HashMap<>(cart);
+                updated.merge(productId, 1, Integer::sum);
+                return updated;
+            });
+            return true;
+        }
+
+        @Override
+        public boolean updateQuantity(int userId, int productId, int quantity)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear(int userId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean applyChanges(int userId, List<ShoppingCartChange> changes)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveAll(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+        {
+            roundTrip();
+            quantitiesByUser.forEach((userId, quantities) -> table.put(userId, new HashMap<>(quantities)));
+        }
+
+        @Override
+        public void flush(int userId)
+        {
+        }
+
+        @Override
+        public void evict(int userId)
+        {
+        }
+
+        private static void roundTrip()
+        {
+            try
+            {
+                Thread.sleep(ROUND_TRIP_MILLIS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.yearup.data.index;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.yearup.configurations.DaoConfig;
+import org.yearup.configurations.PasswordConfig;
+import org.yearup.data.ProductDao;
+import org.yearup.data.mysql.BaseDaoTestClass;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.data.mysql.MySqlUserDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSearch;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the ProductDao exactly as DaoConfig stacks it (cache over indexes over coalescing over MySQL)
+@SpringBootTest
+@ContextConfiguration(classes = {MetricsRegistry.class, PasswordConfig.class, DaoConfig.class, MySqlProductDao.class,
+        MySqlCategoryDao.class, MySqlUserDao.class, MySqlShoppingCartDao.class})
+class IndexedProductDaoContextTest extends BaseDaoTestClass
+{
+    @Autowired
+    private ProductDao productDao;
+
+    @Test
+    public void textSearch_shouldFindASeededProduct_throughTheWholeStack()
+    {
+        // arrange
+        ProductSearch search = new ProductSearch();
+        search.setQuery("smartphone");
+
+        // act
+        List<Product> products = productDao.searchPage(search).getProducts();
+
+        // assert: the text index was built at startup, even though the cache wraps it
+        assertTrue(products.stream().anyMatch(product -> product.getName().equals("Smartphone")),
+                "Because test-data.sql seeds a product named Smartphone.");
+    }
+}
@@ -0,0 +1,156 @@
+package org.yearup.data.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductCursor;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+import org.yearup.models.ProductUpdate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndexedProductDaoTest
+{
+    private ProductDao delegate;
+    private ProductCatalogIndex catalogIndex;
+    private IndexedProductDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        delegate = mock(ProductDao.class);
+        when(delegate.search(null, null, null, null)).thenReturn(List.of(
+                product(1, "499.99", 10),
+                product(2, "899.99", 10)
+        ));
+
+        catalogIndex = new ProductCatalogIndex();
+        dao = new IndexedProductDao(delegate, catalogIndex, null, null);
+        dao.afterPropertiesSet();
+    }
+
+    @Test
+    public void updateBatch_shouldReindexCommittedRows_whenALaterChunkFails()
+    {
+        // arrange: the first chunk committed a new price for product 1, then the connection broke
+        List<ProductUpdate> updates = List.of(
+                new ProductUpdate(1, new BigDecimal("449.99"), null, null),
+                new ProductUpdate(2, new BigDecimal("799.99"), null, null));
+        when(delegate.updateBatch(updates)).thenThrow(new RuntimeException("Error updating products"));
+        when(delegate.getByIds(List.of(1, 2))).thenReturn(List.of(
+                product(1, "449.99", 10),
+                product(2, "899.99", 10)));
+
+        // act
+        assertThrows(RuntimeException.class, () -> dao.updateBatch(updates));
+
+        // assert
+        assertEquals(new BigDecimal("449.99"), catalogIndex.getById(1).getPrice(),
+                "Because rows committed before the failure should reach the index.");
+        assertEquals(new BigDecimal("899.99"), catalogIndex.getById(2).getPrice());
+    }
+
+    @Test
+    public void createBatch_shouldIndexTheStoredRows_notTheInput()
+    {
+        // arrange: the database rounds the price the caller sent
+        Product input = product(0, "19.999", 5);
+        when(delegate.createBatch(List.of(input))).thenAnswer(invocation -> {
+            input.setProductId(3);
+            return Map.of();
+        });
+        when(delegate.getByIds(List.of(3))).thenReturn(List.of(product(3, "20.00", 5)));
+
+        // act
+        dao.createBatch(List.of(input));
+
+        // assert
+        assertEquals(new BigDecimal("20.00"), catalogIndex.getById(3).getPrice(),
+                "Because the index should hold the row as the database stored it.");
+    }
+
+    @Test
+    public void searchPage_withQuery_shouldWalkTheWholeRanking_andPageOnWithACursor()
+    {
+        // arrange: 600 lamps in category 1, and the only two in category 2 ranked somewhere among them
+        List<Product> lamps = new ArrayList<>();
+        for (int id = 1; id <= 600; id++)
+        {
+            Product lamp = product(id, "19.99", 1);
+            lamp.setName("Desk lamp " + id);
+            lamp.setCategoryId(id == 550 || id == 590 ? 2 : 1);
+            lamps.add(lamp);
+        }
+        when(delegate.search(null, null, null, null)).thenReturn(lamps);
+        IndexedProductDao textDao = new IndexedProductDao(delegate, new ProductCatalogIndex(), new ProductTextIndex(), null);
+        textDao.afterPropertiesSet();
+
+        ProductSearch search = new ProductSearch(2, null, null, null);
+        search.setQuery("lamp");
+        search.setLimit(1);
+
+        // act
+        ProductPage first = textDao.searchPage(search);
+        search.setAfter(ProductCursor.decode(first.getNextCursor(), search.getSort()));
+        ProductPage second = textDao.searchPage(search);
+
+        // assert
+        assertEquals(1, first.getProducts().size());
+        assertEquals(1, second.getProducts().size());
+        assertNull(second.getNextCursor(), "Because there is no third lamp in category 2.");
+        assertEquals(Set.of(550, 590), Set.of(first.getProducts().get(0).getProductId(),
+                second.getProducts().get(0).getProductId()));
+    }
+
+    @Test
+    public void searchPage_withQuery_shouldPageThroughEveryMatchOnce_pastTheRankWindow()
+    {
+        // arrange: more lamps than one rank window holds
+        List<Product> lamps = new ArrayList<>();
+        for (int id = 1; id <= 3 * IndexedProductDao.TEXT_RANK_WINDOW; id++)
+        {
+            Product lamp = product(id, "19.99", 1);
+            lamp.setName("Desk lamp " + id);
+            lamps.add(lamp);
+        }
+        when(delegate.search(null, null, null, null)).thenReturn(lamps);
+        IndexedProductDao textDao = new IndexedProductDao(delegate, new ProductCatalogIndex(), new ProductTextIndex(), null);
+        textDao.afterPropertiesSet();
+
+        ProductSearch search = new ProductSearch(null, null, null, null);
+        search.setQuery("lamp");
+        search.setLimit(100);
+
+        // act
+        List<Integer> seen = new ArrayList<>();
+        ProductPage page;
+        do
+        {
+            page = textDao.searchPage(search);
+            page.getProducts().forEach(product -> seen.add(product.getProductId()));
+            search.setAfter(page.getNextCursor() == null ? null : ProductCursor.decode(page.getNextCursor(), search.getSort()));
+        }
+        while (page.getNextCursor() != null);
+
+        // assert
+        assertEquals(lamps.size(), seen.size());
+        assertEquals(lamps.size(), Set.copyOf(seen).size(), "Because no lamp should be shown twice.");
+    }
+
+    private static Product product(int id, String price, int stock)
+    {
+        return new Product(id, "Product " + id, new BigDecimal(price), 1, "", "Black", stock, false, "");
+    }
+}
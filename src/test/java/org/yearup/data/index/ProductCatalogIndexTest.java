@@ -0,0 +1,203 @@
+package org.yearup.data.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.PriceBucket;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSearch;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductCatalogIndexTest
+{
+    private ProductCatalogIndex index;
+
+    @BeforeEach
+    public void setup()
+    {
+        index = new ProductCatalogIndex();
+        index.rebuild(List.of(
+                product(1, "Smartphone", "499.99", 1, "Black"),
+                product(2, "Laptop", "899.99", 1, "Gray"),
+                product(3, "Headphones", "99.99", 1, "White"),
+                product(4, "Men's T-Shirt", "29.99", 2, "Charcoal"),
+                product(6, "Men's Dress Shirt", "49.99", 2, "White"),
+                product(11, "Coffee Maker", "79.99", 3, "Black")
+        ));
+    }
+
+    @Test
+    public void search_shouldCombineAllFilters_likeTheSqlQuery()
+    {
+        // act
+        List<Integer> actual = ids(index.search(null, new BigDecimal("40"), new BigDecimal("500"), "hit"));
+
+        // assert
+        assertEquals(List.of(3, 6), actual, "Because only White products priced 40..500 should match.");
+    }
+
+    @Test
+    public void search_shouldTreatPriceBoundsAsInclusive()
+    {
+        // act
+        List<Integer> actual = ids(index.search(1, new BigDecimal("99.99"), new BigDecimal("499.99"), null));
+
+        // assert
+        assertEquals(List.of(1, 3), actual, "Because min and max price are inclusive.");
+    }
+
+    @Test
+    public void streamSearch_shouldHandOverTheSameMatches_asSearch()
+    {
+        // arrange
+        List<Product> streamed = new ArrayList<>();
+
+        // act
+        index.streamSearch(null, new BigDecimal("40"), new BigDecimal("500"), "hit", streamed::add);
+
+        // assert
+        assertEquals(ids(index.search(null, new BigDecimal("40"), new BigDecimal("500"), "hit")), ids(streamed));
+    }
+
+    @Test
+    public void writes_shouldBeVisibleToTheNextRead()
+    {
+        // act
+        index.put(product(7, "Women's Dress", "79.99", 2, "Mint"));
+        index.remove(4);
+
+        // assert
+        assertEquals(List.of(6, 7), ids(index.listByCategoryId(2)));
+        assertNull(index.getById(4));
+    }
+
+    @Test
+    public void putRows_shouldServeTheNewStock_andRebuildForIndexedChanges()
+    {
+        // arrange
+        Product sold = product(2, "Laptop", "899.99", 1, "Gray");
+        sold.setStock(3);
+        Product repriced = product(3, "Headphones", "19.99", 1, "White");
+
+        // act
+        index.putRows(List.of(sold, repriced));
+
+        // assert: the new stock is served, and the new price is found by the price filter
+        assertEquals(3, index.getById(2).getStock());
+        assertEquals(List.of(2), ids(index.search(1, new BigDecimal("500"), null, null)));
+        assertEquals(List.of(3), ids(index.search(1, null, new BigDecimal("20"), null)));
+    }
+
+    @Test
+    public void putRows_shouldNeverShowReadersAHalfAppliedBatch() throws Exception
+    {
+        // arrange: one writer re-stocks every row in each batch, readers check that a listing has one stock level
+        List<Product> catalog = index.search(null, null, null, null);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger torn = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            for (int round = 1; round <= 20_000; round++)
+            {
+                List<Product> batch = new ArrayList<>(catalog.size());
+                for (Product product : catalog)
+                {
+                    Product restocked = product(product.getProductId(), product.getName(),
+                            product.getPrice().toPlainString(), product.getCategoryId(), product.getSubCategory());
+                    restocked.setStock(round);
+                    batch.add(restocked);
+                }
+                index.putRows(batch);
+            }
+            done.set(true);
+        });
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            readers.add(new Thread(() -> {
+                while (!done.get())
+                {
+                    Set<Integer> stocks = new HashSet<>();
+                    for (Product product : index.search(null, null, null, null))
+                    {
+                        stocks.add(product.getStock());
+                    }
+                    if (stocks.size() != 1)
+                    {
+                        torn.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        // act
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+
+        // assert
+        assertEquals(0, torn.get(), "Because every listing should come from one complete snapshot.");
+        assertEquals(20_000, index.getById(1).getStock());
+    }
+
+    @Test
+    public void searchPage_shouldWalkThePriceOrderWithCursors()
+    {
+        // arrange
+        ProductSearch search = new ProductSearch();
+        search.setPaging("price", null, 4);
+
+        // act
+        ProductPage first = index.searchPage(search);
+        search.setPaging("price", first.getNextCursor(), 4);
+        ProductPage second = index.searchPage(search);
+
+        // assert
+        assertEquals(List.of(4, 6, 11, 3), ids(first.getProducts()));
+        assertEquals(List.of(1, 2), ids(second.getProducts()));
+        assertNull(second.getNextCursor(), "Because the second page is the last one.");
+    }
+
+    @Test
+    public void facets_shouldCountEveryFacetOfTheFilteredSet()
+    {
+        // arrange
+        ProductSearch search = new ProductSearch(null, null, new BigDecimal("500"), null);
+
+        // act
+        ProductFacets facets = index.facets(search, new BigDecimal("50"));
+
+        // assert
+        assertEquals(Map.of(1, 2L, 2, 2L, 3, 1L), facets.getCategories());
+        assertEquals(Map.of("Black", 2L, "White", 2L, "Charcoal", 1L), Map.copyOf(facets.getSubCategories()));
+        assertEquals(List.of(2L, 2L, 1L), facets.getPrices().stream().map(PriceBucket::getCount).collect(Collectors.toList()));
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+
+    private static Product product(int id, String name, String price, int categoryId, String subCategory)
+    {
+        return new Product(id, name, new BigDecimal(price), categoryId, "", subCategory, 10, false, "");
+    }
+}
@@ -0,0 +1,89 @@
+package org.yearup.data.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductTextIndexTest
+{
+    private ProductTextIndex index;
+
+    @BeforeEach
+    public void setup()
+    {
+        index = new ProductTextIndex();
+        index.rebuild(List.of(
+                product(1, "Smartphone", "A powerful and feature-rich smartphone for all your communication needs."),
+                product(2, "Laptop", "A high-performance laptop for work and entertainment."),
+                product(3, "Headphones", "Immerse yourself in music with these high-quality headphones."),
+                product(8, "Women's Jeans", "Comfortable and stylish jeans for a fashionable look."),
+                product(9, "Women's Blouse", "A versatile and chic blouse for everyday wear.")
+        ));
+    }
+
+    @Test
+    public void search_shouldRankNameMatchesAboveDescriptionMatches()
+    {
+        // act
+        int[] actual = index.search("high", 10);
+
+        // assert
+        assertArrayEquals(new int[]{2, 3}, actual, "Because both only mention high- in the description.");
+        assertArrayEquals(new int[]{1}, index.search("smart", 10), "Because prefixes should match.");
+    }
+
+    @Test
+    public void search_shouldRequireEveryToken_andFollowUpdates()
+    {
+        // act
+        index.put(product(9, "Women's Silk Blouse", "A versatile blouse."));
+        index.remove(8);
+
+        // assert
+        assertArrayEquals(new int[]{9}, index.search("women blouse", 10));
+        assertArrayEquals(new int[0], index.search("jeans", 10), "Because product 8 was removed.");
+    }
+
+    @Test
+    public void matchingIds_shouldReturnEveryMatch_inIdOrder()
+    {
+        // act
+        int[] actual = index.matchingIds("for");
+
+        // assert
+        assertArrayEquals(new int[]{1, 2, 8, 9}, actual);
+        assertArrayEquals(new int[0], index.matchingIds("women laptop"));
+    }
+
+    @Test
+    public void search_shouldExpandEveryTermOfAPrefix()
+    {
+        // arrange: a hundred model numbers under one prefix; the last ones sort after the first 64 terms
+        List<Product> products = new ArrayList<>();
+        for (int id = 1; id <= 100; id++)
+        {
+            products.add(product(id, "Model xr" + (1000 + id), "A numbered model."));
+        }
+        index.rebuild(products);
+
+        // act
+        int[] actual = index.search("xr", 1000);
+
+        // assert
+        assertEquals(100, actual.length, "Because every term starting with xr should match.");
+        assertEquals(100, index.matchingIds("model xr").length);
+        assertArrayEquals(new int[]{100}, index.search("xr11", 10), "Because xr1100 sorts last of all.");
+    }
+
+    private static Product product(int id, String name, String description)
+    {
+        return new Product(id, name, new BigDecimal("10.00"), 1, description, "", 10, false, "");
+    }
+}
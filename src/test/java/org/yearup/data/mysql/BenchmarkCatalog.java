@@ -0,0 +1,81 @@
+package org.yearup.data.mysql;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+// Synthetic products for the benchmarks: spread over categories 1..3, five subcategories and 1.00..1000.99
+final class BenchmarkCatalog
+{
+    static final String DESCRIPTION = "Benchmark";
+    static final String[] SUB_CATEGORIES = {"Red", "Blue", "Green", "Black", "White"};
+
+    private static final int BATCH = 5_000;
+
+    private BenchmarkCatalog()
+    {
+    }
+
+    static BigDecimal price(int i)
+    {
+        return BigDecimal.valueOf(100 + (i * 7919L) % 100_000, 2);
+    }
+
+    // rows [from, to) of the synthetic catalog, one transaction per BATCH rows
+    static void insertProducts(DataSource pool, int from, int to) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("""
+                     INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured)
+                     VALUES (?, ?, ?, ?, ?, 'benchmark.jpg', 10, 0)
+                     """))
+        {
+            connection.setAutoCommit(false);
+            for (int i = from; i < to; i++)
+            {
+                stmt.setString(1, "Benchmark product " + i);
+                stmt.setBigDecimal(2, price(i));
+                stmt.setInt(3, 1 + i % 3);
+                stmt.setString(4, DESCRIPTION);
+                stmt.setString(5, SUB_CATEGORIES[(i / 3) % SUB_CATEGORIES.length]);
+                stmt.addBatch();
+
+                if ((i - from + 1) % BATCH == 0 || i == to - 1)
+                {
+                    stmt.executeBatch();
+                    connection.commit();
+                }
+            }
+            connection.setAutoCommit(true);
+        }
+    }
+
+    static void deleteProducts(DataSource pool) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement())
+        {
+            stmt.executeUpdate("DELETE FROM products WHERE description = '" + DESCRIPTION + "'");
+        }
+    }
+
+    static String percentiles(long[] nanos)
+    {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.2f ms, p99 %.2f ms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+
+    static long median(long[] nanos)
+    {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,274 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.ProductDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Order;
+import org.yearup.models.OrderPage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+class MySqlOrderDaoTest extends BaseDaoTestClass
+{
+    private static final int STOCK = 5;
+    private static final int BUYERS = 40;
+    private static final int HISTORY = 100_000;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    // checkout commits, and the buyers need connections of their own
+    private BasicDataSource pool;
+    private MySqlOrderDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaxTotal(16);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+
+        dao = new MySqlOrderDao(pool, new MySqlStockShards(pool, mock(ProductDao.class), new MetricsRegistry(), false, 16, 8, 5));
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        pool.close();
+    }
+
+    @Test
+    public void checkout_shouldNeverOversell_whenBuyersRaceForTheLastItems() throws Exception
+    {
+        // arrange: one product with STOCK left and BUYERS carts that each want one
+        int productId = insertProduct(STOCK);
+        List<Integer> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++)
+        {
+            int userId = insertBuyer("buyer-" + productId + "-" + i);
+            addToCart(userId, productId);
+            buyers.add(userId);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<Order>> checkouts = new ArrayList<>();
+
+        // act
+        for (int userId : buyers)
+        {
+            checkouts.add(executor.submit(() -> {
+                start.await();
+                try
+                {
+                    return dao.checkout(userId);
+                }
+                catch (InsufficientStockException e)
+                {
+                    soldOut.incrementAndGet();
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        int orders = 0;
+        for (Future<Order> checkout : checkouts)
+        {
+            if (checkout.get(30, TimeUnit.SECONDS) != null)
+            {
+                orders++;
+            }
+        }
+        executor.shutdown();
+
+        // assert: exactly STOCK orders, stock at zero, and the losing carts untouched
+        assertEquals(STOCK, orders);
+        assertEquals(BUYERS - STOCK, soldOut.get());
+        assertEquals(0, count("SELECT stock FROM products WHERE product_id = ?", productId));
+        assertEquals(STOCK, count("SELECT COUNT(*) FROM order_line_items WHERE product_id = ?", productId));
+        assertEquals(BUYERS - STOCK, count("SELECT COUNT(*) FROM shopping_cart WHERE product_id = ?", productId));
+    }
+
+    @Test
+    public void orderHistory_shouldPageAndStream_aHundredThousandOrders() throws SQLException
+    {
+        // arrange: one synthetic customer with HISTORY orders of two line items each
+        int productId = insertProduct(1);
+        int userId = insertBuyer("heavy-buyer-" + productId);
+        insertHistory(userId, productId);
+
+        // act: page through everything with the cursor of each page
+        int orders = 0;
+        int pages = 0;
+        int previous = Integer.MAX_VALUE;
+        Integer after = null;
+        do
+        {
+            OrderPage page = dao.getPage(userId, after, OrderPage.MAX_LIMIT);
+            for (Order order : page.getOrders())
+            {
+                // assert: newest first, no order twice, line items loaded with the page
+                assertTrue(order.getOrderId() < previous);
+                assertEquals(2, order.getLineItems().size());
+                previous = order.getOrderId();
+                orders++;
+            }
+            pages++;
+            after = page.getNextCursor();
+        }
+        while (after != null);
+
+        AtomicInteger rows = new AtomicInteger();
+        dao.streamLineItems(userId, (order, item) -> rows.incrementAndGet());
+
+        // assert
+        assertEquals(HISTORY, orders);
+        assertEquals(HISTORY / OrderPage.MAX_LIMIT, pages);
+        assertEquals(HISTORY * 2, rows.get());
+    }
+
+    private int insertProduct(int stock) throws SQLException
+    {
+        return insert("""
+                INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured)
+                VALUES ('Last few', 10.00, 1, 'Low stock', 'Red', 'last-few.jpg', ?, 0)
+                """, stock);
+    }
+
+    private int insertBuyer(String name) throws SQLException
+    {
+        int userId;
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "INSERT INTO users (username, hashed_password, role) VALUES (?, 'x', 'ROLE_USER')",
+                     Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setString(1, name);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                keys.next();
+                userId = keys.getInt(1);
+            }
+        }
+
+        insert("""
+                INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip)
+                VALUES (?, 'Buyer', 'Racer', '800-555-0000', 'buyer@email.com', '1 Main Street', 'Dallas', 'TX', '75051')
+                """, userId);
+        return userId;
+    }
+
+    private void insertHistory(int userId, int productId) throws SQLException
+    {
+        try (Connection connection = pool.getConnection())
+        {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement stmt = connection.prepareStatement("""
+                    INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount)
+                    VALUES (?, NOW(), '1 Main Street', 'Dallas', 'TX', '75051', 0)
+                    """))
+            {
+                for (int i = 1; i <= HISTORY; i++)
+                {
+                    stmt.setInt(1, userId);
+                    stmt.addBatch();
+                    if (i % 5_000 == 0)
+                    {
+                        stmt.executeBatch();
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement("""
+                    INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount)
+                    SELECT o.order_id, ?, 10.00, n.quantity, 0
+                    FROM orders o
+                    CROSS JOIN (SELECT 1 AS quantity UNION ALL SELECT 2) n
+                    WHERE o.user_id = ?
+                    """))
+            {
+                stmt.setInt(1, productId);
+                stmt.setInt(2, userId);
+                stmt.executeUpdate();
+            }
+
+            connection.commit();
+        }
+    }
+
+    private void addToCart(int userId, int productId) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, 1)"))
+        {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int insert(String sql, int param) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setInt(1, param);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                return keys.next() ? keys.getInt(1) : param;
+            }
+        }
+    }
+
+    private int count(String sql, int param) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, param);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.yearup.models.Product;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -47,4 +48,17 @@ class MySqlProductDaoTest extends BaseDaoTestClass
         assertEquals(expected.getPrice(), actual.getPrice(), "Because I tried to get product 1 from the database.");
     }
 
+    @Test
+    public void getByIds_shouldReturn_productsInRequestedOrder()
+    {
+        // act
+        var actual = dao.getByIds(List.of(3, 1, 999999, 3, 2));
+
+        // assert
+        assertEquals(3, actual.size(), "Because unknown and repeated ids are left out.");
+        assertEquals(3, actual.get(0).getProductId());
+        assertEquals(1, actual.get(1).getProductId());
+        assertEquals(2, actual.get(2).getProductId());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.metrics.MetricsRegistry;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class MySqlSalesRollupDaoTest extends BaseDaoTestClass
+{
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    // the rollup commits batch by batch on connections of its own
+    private BasicDataSource pool;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaxTotal(4);
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        pool.close();
+    }
+
+    @Test
+    public void rollUp_shouldCountEveryLineItemOnce_acrossBatchesAndRuns() throws Exception
+    {
+        // arrange: everything already in the table rolled up, then new sales in two categories
+        catchUp(rollups(10_000));
+        Totals before = totals("sales_daily_products");
+
+        int phone = insertProduct(1, "499.99");
+        int shirt = insertProduct(2, "29.99");
+        int orderId = insertOrder();
+        for (int i = 1; i <= 7; i++)
+        {
+            insertLineItem(orderId, i % 2 == 0 ? phone : shirt, i);
+        }
+
+        // act: batches of three ids, and a few runs more than needed
+        MySqlSalesRollupDao dao = rollups(3);
+        catchUp(dao);
+        dao.rollUp(false);
+        dao.rollUp(false);
+
+        // assert: the new line items added once, and both rollups agree with the source table
+        Totals after = totals("sales_daily_products");
+        assertEquals(before.units + 28, after.units);
+        assertEquals(before.lineItems + 7, after.lineItems);
+        assertEquals(source(), after);
+        assertEquals(after, totals("sales_daily_categories"));
+    }
+
+    @Test
+    public void backfill_shouldRebuildTheSameRollups() throws Exception
+    {
+        // arrange
+        int productId = insertProduct(3, "79.99");
+        int orderId = insertOrder();
+        insertLineItem(orderId, productId, 2);
+        insertLineItem(orderId, productId, 1);
+
+        MySqlSalesRollupDao dao = rollups(10_000);
+        catchUp(dao);
+        List<String> products = rows("SELECT day, product_id, units, revenue, line_items FROM sales_daily_products ORDER BY day, product_id");
+        List<String> categories = rows("SELECT day, category_id, units, revenue, line_items FROM sales_daily_categories ORDER BY day, category_id");
+
+        // act
+        dao.rollUp(true);
+
+        // assert
+        assertEquals(products, rows("SELECT day, product_id, units, revenue, line_items FROM sales_daily_products ORDER BY day, product_id"));
+        assertEquals(categories, rows("SELECT day, category_id, units, revenue, line_items FROM sales_daily_categories ORDER BY day, category_id"));
+        assertEquals(source(), totals("sales_daily_categories"));
+    }
+
+    private MySqlSalesRollupDao rollups(int batchSize)
+    {
+        // enabled, but afterPropertiesSet never starts the rollup thread: each test drives the runs itself
+        return new MySqlSalesRollupDao(pool, new MetricsRegistry(), true, 3600, batchSize, 0);
+    }
+
+    // a new instance only rolls up to what its previous run saw, so the first run just looks
+    private static void catchUp(MySqlSalesRollupDao dao) throws InterruptedException
+    {
+        dao.rollUp(false);
+        dao.rollUp(false);
+    }
+
+    private record Totals(long units, BigDecimal revenue, long lineItems)
+    {
+    }
+
+    private Totals totals(String table) throws SQLException
+    {
+        return totalsOf("SELECT COALESCE(SUM(units), 0), COALESCE(SUM(revenue), 0), COALESCE(SUM(line_items), 0) FROM " + table);
+    }
+
+    private Totals source() throws SQLException
+    {
+        return totalsOf("""
+                SELECT COALESCE(SUM(quantity), 0), COALESCE(SUM(sales_price * quantity - discount), 0), COUNT(*)
+                FROM order_line_items
+                """);
+    }
+
+    private Totals totalsOf(String sql) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery())
+        {
+            rs.next();
+            return new Totals(rs.getLong(1), rs.getBigDecimal(2).setScale(2), rs.getLong(3));
+        }
+    }
+
+    private List<String> rows(String sql) throws SQLException
+    {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery())
+        {
+            while (rs.next())
+            {
+                rows.add(rs.getDate(1) + " " + rs.getInt(2) + " " + rs.getInt(3) + " " + rs.getBigDecimal(4) + " " + rs.getInt(5));
+            }
+        }
+        return rows;
+    }
+
+    private int insertProduct(int categoryId, String price) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("""
+                     INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured)
+                     VALUES ('Rolled up', ?, ?, 'Sold a few', 'Red', 'rolled-up.jpg', 100, 0)
+                     """, Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setBigDecimal(1, new BigDecimal(price));
+            stmt.setInt(2, categoryId);
+            stmt.executeUpdate();
+            return generatedKey(stmt);
+        }
+    }
+
+    private int insertOrder() throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("""
+                     INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount)
+                     SELECT MIN(user_id), NOW(), '1 Main Street', 'Dallas', 'TX', '75051', 0 FROM users
+                     """, Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.executeUpdate();
+            return generatedKey(stmt);
+        }
+    }
+
+    private void insertLineItem(int orderId, int productId, int quantity) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("""
+                     INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount)
+                     SELECT ?, product_id, price, ?, 0 FROM products WHERE product_id = ?
+                     """))
+        {
+            stmt.setInt(1, orderId);
+            stmt.setInt(2, quantity);
+            stmt.setInt(3, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int generatedKey(PreparedStatement stmt) throws SQLException
+    {
+        try (ResultSet keys = stmt.getGeneratedKeys())
+        {
+            keys.next();
+            return keys.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.ProductDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Order;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class MySqlStockShardsTest extends BaseDaoTestClass
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MySqlStockShardsTest.class);
+
+    private static final int SHARDS = 16;
+    private static final int BUYERS = 400;
+    private static final int THREADS = 32;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    // takes commit, and the racing buyers need connections of their own
+    private BasicDataSource pool;
+    private ProductDao productDao;
+    private MetricsRegistry metricsRegistry;
+    private MySqlStockShards shards;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaxTotal(THREADS + 4);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+
+        // rebalances only run when a test asks for one
+        productDao = mock(ProductDao.class);
+        metricsRegistry = new MetricsRegistry();
+        shards = new MySqlStockShards(pool, productDao, metricsRegistry, true, SHARDS, 4, 3600);
+        shards.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        shards.destroy();
+        pool.close();
+    }
+
+    @Test
+    public void promote_shouldSplitTheStockIntoShards_andRefreshTheProduct() throws SQLException
+    {
+        // arrange
+        int productId = insertProduct(100);
+
+        // act
+        shards.promote(productId);
+
+        // assert: every unit lands in exactly one shard, and the caches hear about it
+        assertTrue(shards.isSharded(productId));
+        assertEquals(SHARDS, count("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?", productId));
+        assertEquals(100, count("SELECT SUM(stock) FROM product_stock_shards WHERE product_id = ?", productId));
+        assertEquals(100, count("SELECT stock FROM products WHERE product_id = ?", productId));
+        verify(productDao).refresh(List.of(productId));
+    }
+
+    @Test
+    public void enter_shouldPromoteInTheBackground_onceEnoughCheckoutsMeet() throws Exception
+    {
+        // arrange
+        int productId = insertProduct(100);
+
+        // act: four checkouts working on the product at once reaches promote-at-concurrency
+        for (int i = 0; i < 4; i++)
+        {
+            shards.enter(List.of(productId));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!shards.isSharded(productId) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(20);
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            shards.exit(List.of(productId));
+        }
+
+        // assert
+        assertTrue(shards.isSharded(productId));
+        assertEquals(SHARDS, count("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?", productId));
+    }
+
+    @Test
+    public void exit_shouldForgetTheProduct_whenItsLastCheckoutLeaves()
+    {
+        // act
+        shards.enter(List.of(1, 2));
+        shards.enter(List.of(1));
+        shards.exit(List.of(1, 2));
+        long whileOneRemains = metricsRegistry.snapshot().get("stockShards").get("productsInCheckout");
+        shards.exit(List.of(1));
+
+        // assert
+        assertEquals(1L, whileOneRemains, "Because product 1 still has a checkout working on it.");
+        assertEquals(0L, metricsRegistry.snapshot().get("stockShards").get("productsInCheckout"),
+                "Because every product seen once must not stay in the map forever.");
+    }
+
+    @Test
+    public void take_shouldSpreadAcrossShards_whenNoSingleShardHasEnough() throws SQLException
+    {
+        // arrange: one unit in each shard
+        int productId = insertProduct(SHARDS);
+        shards.promote(productId);
+
+        // act
+        boolean took = inTransaction(connection -> shards.take(connection, productId, 3));
+        boolean tookTooMany = inTransaction(connection -> shards.take(connection, productId, SHARDS));
+
+        // assert: three units gone from three shards, and the rest still there
+        assertTrue(took);
+        assertFalse(tookTooMany);
+        assertEquals(SHARDS - 3, count("SELECT SUM(stock) FROM product_stock_shards WHERE product_id = ?", productId));
+        assertEquals(3, count("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ? AND stock = 0", productId));
+    }
+
+    @Test
+    public void rebalance_shouldFoldTheSalesIntoProducts_andDemoteWithoutContention() throws SQLException
+    {
+        // arrange: five units sold from the shards
+        int productId = insertProduct(100);
+        shards.promote(productId);
+        for (int i = 0; i < 5; i++)
+        {
+            assertTrue(inTransaction(connection -> shards.take(connection, productId, 1)));
+        }
+
+        // act: nobody entered a checkout since the promotion
+        shards.rebalance();
+
+        // assert
+        assertFalse(shards.isSharded(productId));
+        assertEquals(0, count("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?", productId));
+        assertEquals(95, count("SELECT stock FROM products WHERE product_id = ?", productId));
+        verify(productDao, times(2)).refresh(List.of(productId));
+    }
+
+    @Test
+    public void take_shouldFallBackToTheProductsRow_whenTheShardsAreGone() throws SQLException
+    {
+        // arrange: another instance demoted the product, but this one still thinks it is sharded
+        int productId = insertProduct(100);
+        shards.promote(productId);
+        update("DELETE FROM product_stock_shards WHERE product_id = ?", productId);
+
+        // act
+        boolean took = inTransaction(connection -> shards.take(connection, productId, 1));
+
+        // assert
+        assertTrue(took);
+        assertTrue(shards.isSharded(productId));
+        assertEquals(99, count("SELECT stock FROM products WHERE product_id = ?", productId));
+    }
+
+    @Test
+    public void checkout_shouldTakeFromTheShards_whenPromotedElsewhereAfterItLooked() throws SQLException
+    {
+        // arrange: this instance has not seen the promotion, so checkout starts on the products row
+        MySqlStockShards stale = new MySqlStockShards(pool, productDao, new MetricsRegistry(), true, SHARDS, 1_000, 3600);
+        stale.afterPropertiesSet();
+        int productId = insertProduct(100);
+        shards.promote(productId);
+        int userId = insertBuyer("stale-buyer-" + productId);
+        addToCart(userId, productId);
+
+        try
+        {
+            // act
+            Order order = new MySqlOrderDao(pool, stale).checkout(userId);
+
+            // assert: products.stock is left for the next rebalance; the unit came out of a shard
+            assertNotNull(order);
+            assertEquals(100, count("SELECT stock FROM products WHERE product_id = ?", productId));
+            assertEquals(99, count("SELECT SUM(stock) FROM product_stock_shards WHERE product_id = ?", productId));
+        }
+        finally
+        {
+            stale.destroy();
+        }
+    }
+
+    @Test
+    public void checkout_shouldSellExactlyTheStock_onOneRowAndOnShards() throws Exception
+    {
+        // act / assert: the same rush twice, once on the products row and once on SHARDS shard rows
+        rushBoth();
+    }
+
+    @Tag("benchmark")
+    @Test
+    public void checkout_shouldReserveFaster_withSixteenShardsThanWithOneRow() throws Exception
+    {
+        // act
+        double[] rates = rushBoth();
+        LOG.info("{} checkouts of one product by {} threads: {}/s on 1 row, {}/s on {} shards",
+                BUYERS, THREADS, Math.round(rates[0]), Math.round(rates[1]), SHARDS);
+
+        // assert
+        assertTrue(rates[1] > rates[0], "Because buyers of a promoted product should not queue on one row lock.");
+    }
+
+    // the same rush on the products row and on SHARDS shard rows; both must sell exactly what they had
+    private double[] rushBoth() throws Exception
+    {
+        MySqlStockShards off = new MySqlStockShards(pool, productDao, new MetricsRegistry(), false, SHARDS, 4, 3600);
+        int plainId = insertProduct(BUYERS);
+        int shardedId = insertProduct(BUYERS);
+        shards.promote(shardedId);
+
+        double plainRate = rush(new MySqlOrderDao(pool, off), plainId);
+        double shardedRate = rush(new MySqlOrderDao(pool, shards), shardedId);
+
+        assertEquals(0, count("SELECT stock FROM products WHERE product_id = ?", plainId));
+        assertEquals(0, count("SELECT SUM(stock) FROM product_stock_shards WHERE product_id = ?", shardedId));
+        assertEquals(BUYERS, count("SELECT COUNT(*) FROM order_line_items WHERE product_id = ?", plainId));
+        assertEquals(BUYERS, count("SELECT COUNT(*) FROM order_line_items WHERE product_id = ?", shardedId));
+        return new double[]{plainRate, shardedRate};
+    }
+
+    // checkouts per second for BUYERS carts of one unit each, THREADS at a time
+    private double rush(MySqlOrderDao dao, int productId) throws Exception
+    {
+        List<Integer> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++)
+        {
+            int userId = insertBuyer("rush-" + productId + "-" + i);
+            addToCart(userId, productId);
+            buyers.add(userId);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<Order>> checkouts = new ArrayList<>();
+        for (int userId : buyers)
+        {
+            checkouts.add(executor.submit(() -> {
+                start.await();
+                try
+                {
+                    return dao.checkout(userId);
+                }
+                catch (InsufficientStockException e)
+                {
+                    soldOut.incrementAndGet();
+                    return null;
+                }
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+
+        for (Future<Order> checkout : checkouts)
+        {
+            checkout.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        assertEquals(0, soldOut.get());
+        return BUYERS / seconds;
+    }
+
+    private interface Take
+    {
+        boolean apply(Connection connection) throws SQLException;
+    }
+
+    private boolean inTransaction(Take take) throws SQLException
+    {
+        try (Connection connection = pool.getConnection())
+        {
+            connection.setAutoCommit(false);
+            boolean took = take.apply(connection);
+            connection.commit();
+            return took;
+        }
+    }
+
+    private int insertProduct(int stock) throws SQLException
+    {
+        return insert("""
+                INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured)
+                VALUES ('Viral', 10.00, 1, 'Hot product', 'Red', 'viral.jpg', ?, 0)
+                """, stock);
+    }
+
+    private int insertBuyer(String name) throws SQLException
+    {
+        int userId;
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "INSERT INTO users (username, hashed_password, role) VALUES (?, 'x', 'ROLE_USER')",
+                     Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setString(1, name);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                keys.next();
+                userId = keys.getInt(1);
+            }
+        }
+
+        insert("""
+                INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip)
+                VALUES (?, 'Buyer', 'Rush', '800-555-0000', 'buyer@email.com', '1 Main Street', 'Dallas', 'TX', '75051')
+                """, userId);
+        return userId;
+    }
+
+    private void addToCart(int userId, int productId) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, 1)"))
+        {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int insert(String sql, int param) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            stmt.setInt(1, param);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys())
+            {
+                return keys.next() ? keys.getInt(1) : param;
+            }
+        }
+    }
+
+    private void update(String sql, int param) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, param);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int count(String sql, int param) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql))
+        {
+            stmt.setInt(1, param);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.controllers.OrderIntakeQueue;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.models.Order;
+import org.yearup.models.OrderStatus;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/*
+    Flash-sale benchmark (mvn test -Pbenchmark): the same rush of buyers checks out synchronously (one transaction
+    per request, as POST /orders does with the queue off) and through OrderIntakeQueue, against easyshop_test. Both
+    runs share dbcp2's default pool of 8 connections, which is what the application runs with. For the queue,
+    "accepted" is the 202 and its latency is the time to answer; the time until each order is written is logged
+    as well.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderIntakeLoadTest extends BaseDaoTestClass
+{
+    private static final Logger LOG = LoggerFactory.getLogger(OrderIntakeLoadTest.class);
+
+    private static final int BUYERS = 2_000;
+    private static final int CLIENTS = 64;
+    private static final int PRODUCTS = 20;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    private BasicDataSource pool;
+    private MySqlOrderDao orderDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+
+        orderDao = new MySqlOrderDao(pool, new MySqlStockShards(pool, mock(ProductDao.class), new MetricsRegistry(),
+                false, 16, 8, 5));
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        pool.close();
+    }
+
+    @Test
+    public void checkout_queuedVersusSynchronous_underAFlashSale() throws Exception
+    {
+        // arrange: the same catalog and the same number of two-item carts for each run
+        List<Integer> products = insertProducts();
+        List<Integer> syncBuyers = insertBuyers("sync", products);
+        List<Integer> queuedBuyers = insertBuyers("queued", products);
+        long ordersBefore = count("SELECT COUNT(*) FROM orders");
+
+        // act
+        Run sync = rush(syncBuyers, userId -> {
+            Order order = orderDao.checkout(userId);
+            assertNotNull(order);
+        });
+
+        OrderIntakeQueue intake = new OrderIntakeQueue(orderDao, mock(ShoppingCartDao.class), mock(ProductDao.class),
+                new MetricsRegistry(), true, BUYERS, 2, 20, 600);
+        intake.afterPropertiesSet();
+        List<OrderStatus> tickets = new ArrayList<>();
+        Run queued = rush(queuedBuyers, userId -> {
+            OrderStatus ticket = intake.submit(userId);
+            assertNotNull(ticket, "Because the queue holds every buyer of this run.");
+            synchronized (tickets)
+            {
+                tickets.add(ticket);
+            }
+        });
+        intake.destroy();
+
+        long[] written = new long[tickets.size()];
+        long lastWritten = 0;
+        for (int i = 0; i < tickets.size(); i++)
+        {
+            OrderStatus ticket = tickets.get(i);
+            assertEquals(OrderStatus.CREATED, ticket.getStatus(), ticket.getMessage());
+            written[i] = (ticket.getFinishedAt() - ticket.getAcceptedAt()) * 1_000_000;
+            lastWritten = Math.max(lastWritten, ticket.getFinishedAt());
+        }
+        double writeSeconds = (lastWritten - queued.startedAtMillis) / 1e3;
+
+        LOG.info("synchronous: {} orders/s accepted, latency {}", Math.round(sync.perSecond()), sync.latency());
+        LOG.info("queued: {} orders/s accepted, latency {}", Math.round(queued.perSecond()), queued.latency());
+        LOG.info("queued: {} orders/s written, accepted to written {}", Math.round(BUYERS / writeSeconds),
+                percentiles(written));
+
+        // assert: the queue answers faster than a checkout can commit, and both runs wrote every order exactly once
+        assertTrue(queued.perSecond() > sync.perSecond(),
+                "Because accepting an order onto the queue should not wait for its transaction.");
+        assertEquals(ordersBefore + 2L * BUYERS, count("SELECT COUNT(*) FROM orders"));
+        assertEquals(0, count("SELECT COUNT(*) FROM shopping_cart WHERE product_id BETWEEN "
+                + products.get(0) + " AND " + products.get(PRODUCTS - 1)));
+    }
+
+    private interface Checkout
+    {
+        void run(int userId) throws Exception;
+    }
+
+    private record Run(long startedAtMillis, double seconds, long[] latencies)
+    {
+        double perSecond()
+        {
+            return latencies.length / seconds;
+        }
+
+        String latency()
+        {
+            return percentiles(latencies);
+        }
+    }
+
+    // every buyer once, CLIENTS at a time, all released together; each call is timed from the release
+    private static Run rush(List<Integer> buyers, Checkout checkout) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] latencies = new long[buyers.size()];
+        List<Future<?>> calls = new ArrayList<>();
+
+        for (int i = 0; i < buyers.size(); i++)
+        {
+            int index = i;
+            int userId = buyers.get(i);
+            calls.add(executor.submit(() -> {
+                start.await();
+                long begun = System.nanoTime();
+                checkout.run(userId);
+                latencies[index] = System.nanoTime() - begun;
+                return null;
+            }));
+        }
+
+        long startedAtMillis = System.currentTimeMillis();
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> call : calls)
+        {
+            call.get(120, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        return new Run(startedAtMillis, seconds, latencies);
+    }
+
+    private static String percentiles(long[] nanos)
+    {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private List<Integer> insertProducts() throws SQLException
+    {
+        List<Integer> ids = new ArrayList<>(PRODUCTS);
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement("""
+                     INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured)
+                     VALUES ('Flash sale', 10.00, 1, 'Plenty left', 'Red', 'flash-sale.jpg', 1000000, 0)
+                     """, Statement.RETURN_GENERATED_KEYS))
+        {
+            for (int i = 0; i < PRODUCTS; i++)
+            {
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys())
+                {
+                    keys.next();
+                    ids.add(keys.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // BUYERS users with a profile and two products in the cart, spread over the catalog
+    private List<Integer> insertBuyers(String prefix, List<Integer> products) throws SQLException
+    {
+        List<Integer> ids = new ArrayList<>(BUYERS);
+        try (Connection connection = pool.getConnection())
+        {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO users (username, hashed_password, role) VALUES (?, 'x', 'ROLE_USER')",
+                    Statement.RETURN_GENERATED_KEYS))
+            {
+                for (int i = 0; i < BUYERS; i++)
+                {
+                    stmt.setString(1, prefix + "-" + products.get(0) + "-" + i);
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys())
+                    {
+                        keys.next();
+                        ids.add(keys.getInt(1));
+                    }
+                }
+            }
+
+            try (PreparedStatement profile = connection.prepareStatement("""
+                         INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip)
+                         VALUES (?, 'Buyer', 'Flash', '800-555-0000', 'buyer@email.com', '1 Main Street', 'Dallas', 'TX', '75051')
+                         """);
+                 PreparedStatement cart = connection.prepareStatement(
+                         "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, 1)"))
+            {
+                for (int i = 0; i < ids.size(); i++)
+                {
+                    profile.setInt(1, ids.get(i));
+                    profile.addBatch();
+                    for (int product : List.of(products.get(i % PRODUCTS), products.get((i * 7 + 3) % PRODUCTS)))
+                    {
+                        cart.setInt(1, ids.get(i));
+                        cart.setInt(2, product);
+                        cart.addBatch();
+                    }
+                }
+                profile.executeBatch();
+                cart.executeBatch();
+            }
+
+            connection.commit();
+        }
+        return ids;
+    }
+
+    private long count(String sql) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery())
+        {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.data.index.ProductCatalogIndex;
+import org.yearup.models.PriceBucket;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductSearch;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Facet counts benchmark (mvn test -Pbenchmark): category, subcategory and price bucket counts for one filter set
+    over 100k products in easyshop_test, computed three ways - one search per facet value (what the listing page
+    would do without facets), MySqlProductDao's single GROUP BY query, and the catalog index's bitmap pass.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ProductFacetsBenchmarkTest extends BaseDaoTestClass
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductFacetsBenchmarkTest.class);
+
+    private static final int PRODUCTS = 100_000;
+    private static final int ROUNDS = 20;
+    private static final BigDecimal STEP = ProductFacets.DEFAULT_PRICE_STEP;
+    private static final BigDecimal MIN_PRICE = new BigDecimal("100.00");
+    private static final BigDecimal MAX_PRICE = new BigDecimal("599.99");
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    private BasicDataSource pool;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        BenchmarkCatalog.deleteProducts(pool);
+        pool.close();
+    }
+
+    @Test
+    public void facets_shouldCountInOnePass_fasterThanOneQueryPerFacetValue() throws Exception
+    {
+        // arrange
+        BenchmarkCatalog.insertProducts(pool, 0, PRODUCTS);
+        MySqlProductDao jdbc = new MySqlProductDao(pool);
+        ProductCatalogIndex index = new ProductCatalogIndex();
+        index.rebuild(jdbc.search(null, null, null, null));
+        ProductSearch search = new ProductSearch(null, MIN_PRICE, MAX_PRICE, null);
+
+        // act
+        long[] separateNanos = new long[ROUNDS];
+        long[] groupByNanos = new long[ROUNDS];
+        long[] indexNanos = new long[ROUNDS];
+        ProductFacets separate = null;
+        ProductFacets groupBy = null;
+        ProductFacets bitmaps = null;
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            long started = System.nanoTime();
+            separate = oneQueryPerFacetValue(jdbc);
+            separateNanos[round] = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            groupBy = jdbc.facets(search, STEP);
+            groupByNanos[round] = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            bitmaps = index.facets(search, STEP);
+            indexNanos[round] = System.nanoTime() - started;
+        }
+
+        LOG.info("facets over {} products: one query per value {}, one GROUP BY {}, catalog index {}", PRODUCTS,
+                BenchmarkCatalog.percentiles(separateNanos), BenchmarkCatalog.percentiles(groupByNanos),
+                BenchmarkCatalog.percentiles(indexNanos));
+
+        // assert: all three agree, and a single pass beats the separate queries
+        assertSameCounts(separate, groupBy);
+        assertSameCounts(separate, bitmaps);
+        assertTrue(BenchmarkCatalog.median(groupByNanos) < BenchmarkCatalog.median(separateNanos),
+                "Because one grouped query should beat " + queries() + " separate ones.");
+    }
+
+    // the facets as the listing page would count them without the facets API: one search per value shown
+    private static ProductFacets oneQueryPerFacetValue(MySqlProductDao jdbc)
+    {
+        ProductFacets facets = new ProductFacets(STEP);
+        for (int categoryId = 1; categoryId <= 3; categoryId++)
+        {
+            facets.countCategory(categoryId, jdbc.search(categoryId, MIN_PRICE, MAX_PRICE, null).size());
+        }
+        for (String subCategory : BenchmarkCatalog.SUB_CATEGORIES)
+        {
+            facets.countSubCategory(subCategory, jdbc.search(null, MIN_PRICE, MAX_PRICE, subCategory).size());
+        }
+        for (long bucket = facets.bucketOf(MIN_PRICE); bucket <= facets.bucketOf(MAX_PRICE); bucket++)
+        {
+            BigDecimal low = STEP.multiply(BigDecimal.valueOf(bucket));
+            BigDecimal high = low.add(STEP).subtract(new BigDecimal("0.01"));
+            facets.countPriceBucket(bucket, jdbc.search(null, low.max(MIN_PRICE), high.min(MAX_PRICE), null).size());
+        }
+        return facets;
+    }
+
+    private static int queries()
+    {
+        return 3 + BenchmarkCatalog.SUB_CATEGORIES.length
+                + (int) (MAX_PRICE.divideToIntegralValue(STEP).longValue() - MIN_PRICE.divideToIntegralValue(STEP).longValue() + 1);
+    }
+
+    private static void assertSameCounts(ProductFacets expected, ProductFacets actual)
+    {
+        assertEquals(expected.getCategories(), actual.getCategories());
+        assertEquals(expected.getSubCategories(), actual.getSubCategories());
+        assertEquals(counts(expected.getPrices()), counts(actual.getPrices()));
+    }
+
+    private static List<String> counts(List<PriceBucket> prices)
+    {
+        return prices.stream().map(bucket -> bucket.getMin() + ".." + bucket.getMax() + " " + bucket.getCount()).toList();
+    }
+}
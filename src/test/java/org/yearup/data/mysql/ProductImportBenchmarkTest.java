@@ -0,0 +1,109 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.models.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Bulk import benchmark (mvn test -Pbenchmark): 100k rows through MySqlProductDao.createBatch in chunks of
+    CHUNK (one transaction and one rewritten multi-row INSERT each, as POST /products/import writes them) against
+    the per-row path of POST /products (create, one auto-committed INSERT with RETURN_GENERATED_KEYS per row).
+    The per-row path only writes PER_ROW rows, enough for a steady rate without a multi-minute run.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ProductImportBenchmarkTest extends BaseDaoTestClass
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImportBenchmarkTest.class);
+
+    private static final int BATCHED = 100_000;
+    private static final int PER_ROW = 10_000;
+    private static final int CHUNK = 1_000;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    private BasicDataSource pool;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        BenchmarkCatalog.deleteProducts(pool);
+        pool.close();
+    }
+
+    @Test
+    public void createBatch_shouldImportFaster_thanOneInsertPerRow()
+    {
+        // arrange
+        MySqlProductDao dao = new MySqlProductDao(pool);
+
+        // act: per row, as POST /products does
+        long started = System.nanoTime();
+        for (int i = 0; i < PER_ROW; i++)
+        {
+            assertNotNull(dao.create(product(i)));
+        }
+        double perRowRate = PER_ROW / ((System.nanoTime() - started) / 1e9);
+
+        // act: chunked batches, as POST /products/import does
+        int failed = 0;
+        started = System.nanoTime();
+        for (int from = PER_ROW; from < PER_ROW + BATCHED; from += CHUNK)
+        {
+            List<Product> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < from + CHUNK; i++)
+            {
+                chunk.add(product(i));
+            }
+            failed += dao.createBatch(chunk).size();
+        }
+        double batchedRate = BATCHED / ((System.nanoTime() - started) / 1e9);
+
+        LOG.info("product import: {} rows/s one INSERT per row ({} rows), {} rows/s in batches of {} ({} rows)",
+                Math.round(perRowRate), PER_ROW, Math.round(batchedRate), CHUNK, BATCHED);
+
+        // assert
+        assertEquals(0, failed);
+        assertEquals(PER_ROW + BATCHED, dao.search(null, null, null, null).stream()
+                .filter(product -> BenchmarkCatalog.DESCRIPTION.equals(product.getDescription())).count());
+        assertTrue(batchedRate > perRowRate, "Because a batch pays one round trip and one commit per chunk.");
+    }
+
+    private static Product product(int i)
+    {
+        return new Product(0, "Benchmark product " + i, BenchmarkCatalog.price(i), 1 + i % 3, BenchmarkCatalog.DESCRIPTION,
+                BenchmarkCatalog.SUB_CATEGORIES[(i / 3) % BenchmarkCatalog.SUB_CATEGORIES.length], 10, false, "benchmark.jpg");
+    }
+}
@@ -0,0 +1,133 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.yearup.data.index.ProductCatalogIndex;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    GET /products search benchmark (mvn test -Pbenchmark): the same filters answered by MySqlProductDao (dynamic
+    SQL, subcategory LIKE '%x%') and by ProductCatalogIndex, at 10k, 100k and 1M products in easyshop_test. Logs
+    latency and searches per second for both, checks they return the same products, and that the index is faster.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ProductSearchBenchmarkTest extends BaseDaoTestClass
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchBenchmarkTest.class);
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int SEARCHES = 50;
+
+    // what a shopper filters by: one category, a price band, a colour, and combinations of them
+    private static final Filter[] FILTERS = {
+            new Filter(1, new BigDecimal("100.00"), new BigDecimal("110.00"), "Red"),
+            new Filter(null, new BigDecimal("500.00"), new BigDecimal("502.00"), null),
+            new Filter(2, new BigDecimal("900.00"), new BigDecimal("920.00"), null),
+            new Filter(null, new BigDecimal("250.00"), new BigDecimal("260.00"), "lac")
+    };
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    private BasicDataSource pool;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(serverUrl + "/" + testDb);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.addConnectionProperty("rewriteBatchedStatements", "true");
+    }
+
+    @AfterEach
+    public void closePool() throws SQLException
+    {
+        BenchmarkCatalog.deleteProducts(pool);
+        pool.close();
+    }
+
+    @Test
+    public void search_shouldBeFasterFromTheCatalogIndex_thanFromSql() throws Exception
+    {
+        MySqlProductDao jdbc = new MySqlProductDao(pool);
+        int loaded = 0;
+
+        for (int size : SIZES)
+        {
+            // arrange: grow the table to size and load the index from it, as IndexedProductDao does at startup
+            BenchmarkCatalog.insertProducts(pool, loaded, size);
+            loaded = size;
+            ProductCatalogIndex index = new ProductCatalogIndex();
+            index.rebuild(jdbc.search(null, null, null, null));
+
+            // act
+            long[] sqlNanos = new long[SEARCHES * FILTERS.length];
+            long[] indexNanos = new long[SEARCHES * FILTERS.length];
+            for (int i = 0; i < sqlNanos.length; i++)
+            {
+                Filter filter = FILTERS[i % FILTERS.length];
+
+                long started = System.nanoTime();
+                List<Product> fromSql = jdbc.search(filter.categoryId, filter.minPrice, filter.maxPrice, filter.subCategory);
+                sqlNanos[i] = System.nanoTime() - started;
+
+                started = System.nanoTime();
+                List<Product> fromIndex = index.search(filter.categoryId, filter.minPrice, filter.maxPrice, filter.subCategory);
+                indexNanos[i] = System.nanoTime() - started;
+
+                // assert: the same products either way
+                assertEquals(ids(fromSql), ids(fromIndex), "Because the index must answer like the SQL query.");
+            }
+
+            LOG.info("{} products: sql {} ({} searches/s), index {} ({} searches/s)", size,
+                    BenchmarkCatalog.percentiles(sqlNanos), Math.round(perSecond(sqlNanos)),
+                    BenchmarkCatalog.percentiles(indexNanos), Math.round(perSecond(indexNanos)));
+
+            // assert
+            assertTrue(BenchmarkCatalog.median(indexNanos) < BenchmarkCatalog.median(sqlNanos),
+                    "Because at " + size + " products the index should answer without a round trip.");
+        }
+    }
+
+    private record Filter(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).sorted().toList();
+    }
+
+    private static double perSecond(long[] nanos)
+    {
+        long total = 0;
+        for (long took : nanos)
+        {
+            total += took;
+        }
+        return nanos.length / (total / 1e9);
+    }
+}
@@ -0,0 +1,86 @@
+package org.yearup.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShoppingCartTest
+{
+    @Test
+    public void getTotal_shouldMatchTheBigDecimalArithmetic_forCartsOf1To500Lines()
+    {
+        Random random = new Random(42);
+
+        for (int lines : new int[]{1, 2, 10, 100, 500})
+        {
+            // arrange
+            ShoppingCart cart = new ShoppingCart();
+            BigDecimal expectedTotal = BigDecimal.ZERO;
+            for (int i = 1; i <= lines; i++)
+            {
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+                ShoppingCartItem item = item(i, price, 1 + random.nextInt(20));
+                cart.add(item);
+                expectedTotal = expectedTotal.add(reference(item));
+            }
+
+            // act / assert: same value and same scale, so the JSON is unchanged
+            assertEquals(expectedTotal, cart.getTotal());
+            for (ShoppingCartItem item : cart.getItems().values())
+            {
+                assertEquals(reference(item), item.getLineTotal());
+            }
+        }
+    }
+
+    @Test
+    public void getTotal_shouldKeepTheBigDecimalResult_whenALineHasADiscount()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        cart.add(item(1, new BigDecimal("19.99"), 3));
+        ShoppingCartItem discounted = item(2, new BigDecimal("10.05"), 1);
+        discounted.setDiscountPercent(new BigDecimal("0.15"));
+        cart.add(discounted);
+
+        // act / assert
+        assertEquals(new BigDecimal("59.97").add(reference(discounted)), cart.getTotal());
+        assertEquals(new BigDecimal("8.5425"), discounted.getLineTotal());
+    }
+
+    @Test
+    public void getTotal_shouldFollowQuantityAndPriceChanges()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        ShoppingCartItem item = item(1, new BigDecimal("2.50"), 1);
+        cart.add(item);
+        assertEquals(new BigDecimal("2.50"), cart.getTotal());
+
+        // act
+        item.setQuantity(4);
+        item.getProduct().setPrice(new BigDecimal("3.10"));
+
+        // assert
+        assertEquals(new BigDecimal("12.40"), cart.getTotal());
+        assertEquals(BigDecimal.ZERO, new ShoppingCart().getTotal());
+    }
+
+    private static ShoppingCartItem item(int productId, BigDecimal price, int quantity)
+    {
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(new Product(productId, "product " + productId, price, 1, "", "", 10, false, ""));
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    // the line total as ShoppingCartItem worked it out before the cents path
+    private static BigDecimal reference(ShoppingCartItem item)
+    {
+        BigDecimal subTotal = item.getProduct().getPrice().multiply(new BigDecimal(item.getQuantity()));
+        return subTotal.subtract(subTotal.multiply(item.getDiscountPercent()));
+    }
+}
@@ -0,0 +1,80 @@
+package org.yearup.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest
+{
+    @Test
+    public void matches_shouldFailFast_whenThePoolAndQueueAreFull() throws Exception
+    {
+        // arrange: one hashing thread, one queue slot, and a hash that blocks until released
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blockingEncoder(started, release), 1, 1, 10_000);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        Future<Boolean> running = callers.submit(() -> encoder.matches("a", "a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Boolean> queued = callers.submit(() -> encoder.matches("b", "b"));
+        waitForQueueDepth(encoder, 1);
+
+        // act / assert: the third caller is turned away instead of waiting
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.matches("c", "c"));
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, encoder.stats().get("rejected"));
+        assertEquals(2L, encoder.stats().get("hashes"));
+
+        callers.shutdown();
+        encoder.shutdown();
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release)
+    {
+        return new PasswordEncoder()
+        {
+            @Override
+            public String encode(CharSequence rawPassword)
+            {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword)
+            {
+                started.countDown();
+                try
+                {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+    }
+
+    private static void waitForQueueDepth(BoundedPasswordEncoder encoder, long depth) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.stats().get("queueDepth") < depth && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.yearup.security.jwt;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+    Repeated token validation with and without the verified-token cache (mvn test -Pbenchmark): the same few
+    tokens, as a handful of logged-in shoppers would send them, validated over and over by two TokenProviders that
+    differ only in the cache's max TTL (0 stores nothing, so every request checks the HS512 signature again).
+ */
+@Tag("benchmark")
+class TokenProviderBenchmarkTest
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TokenProviderBenchmarkTest.class);
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[64]);
+    private static final int TOKENS = 16;
+    private static final int WARMUP = 20_000;
+    private static final int VALIDATIONS = 200_000;
+
+    @Test
+    public void resolveAuthentication_shouldValidateRepeatsFaster_withTheVerifiedCache()
+    {
+        // arrange
+        MetricsRegistry cachedMetrics = new MetricsRegistry();
+        TokenProvider cached = provider(300, cachedMetrics);
+        MetricsRegistry uncachedMetrics = new MetricsRegistry();
+        TokenProvider uncached = provider(0, uncachedMetrics);
+        List<String> tokens = tokens(cached);
+
+        // act
+        double uncachedRate = validationsPerSecond(uncached, tokens);
+        double cachedRate = validationsPerSecond(cached, tokens);
+        LOG.info("{} validations of {} tokens: {}/s verifying every time, {}/s with the verified cache",
+                VALIDATIONS, TOKENS, Math.round(uncachedRate), Math.round(cachedRate));
+
+        // assert
+        assertEquals(0L, uncachedMetrics.snapshot().get("jwtVerifiedCache").get("hits"));
+        assertEquals((long) WARMUP + VALIDATIONS - TOKENS, cachedMetrics.snapshot().get("jwtVerifiedCache").get("hits"),
+                "Because only the first sight of each token should verify the signature.");
+        assertTrue(cachedRate > uncachedRate, "Because a hash lookup should beat an HMAC check and claim parsing.");
+    }
+
+    private static TokenProvider provider(long verifiedCacheMaxTtlSeconds, MetricsRegistry metricsRegistry)
+    {
+        TokenProvider provider = new TokenProvider(SECRET, 3600, 10_000, verifiedCacheMaxTtlSeconds, metricsRegistry);
+        provider.afterPropertiesSet();
+        return provider;
+    }
+
+    // both providers share the secret, so either one can issue the tokens
+    private static List<String> tokens(TokenProvider provider)
+    {
+        List<String> tokens = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++)
+        {
+            tokens.add(provider.createToken(new UsernamePasswordAuthenticationToken("shopper" + i, "",
+                    List.of(new SimpleGrantedAuthority("ROLE_USER"))), false));
+        }
+        return tokens;
+    }
+
+    private static double validationsPerSecond(TokenProvider provider, List<String> tokens)
+    {
+        for (int i = 0; i < WARMUP; i++)
+        {
+            provider.resolveAuthentication(tokens.get(i % TOKENS)).orElseThrow();
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < VALIDATIONS; i++)
+        {
+            provider.resolveAuthentication(tokens.get(i % TOKENS)).orElseThrow();
+        }
+        return VALIDATIONS / ((System.nanoTime() - started) / 1e9);
+    }
+}
@@ -0,0 +1,83 @@
+package org.yearup.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.security.AuthenticatedUser;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenProviderTest
+{
+    private MetricsRegistry metricsRegistry;
+    private TokenProvider tokenProvider;
+
+    @BeforeEach
+    public void setup()
+    {
+        String secret = Base64.getEncoder().encodeToString(new byte[64]);
+        metricsRegistry = new MetricsRegistry();
+        tokenProvider = new TokenProvider(secret, 3600, 100, 300, metricsRegistry);
+        tokenProvider.afterPropertiesSet();
+    }
+
+    @Test
+    public void resolveAuthentication_shouldVerifyOnce_andServeRepeatsFromCache()
+    {
+        // arrange
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("admin", "",
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))), false);
+
+        // act
+        Authentication first = tokenProvider.resolveAuthentication(token).orElseThrow();
+        Authentication second = tokenProvider.resolveAuthentication(token).orElseThrow();
+
+        // assert
+        assertEquals("admin", first.getName());
+        assertEquals("ROLE_ADMIN", first.getAuthorities().iterator().next().getAuthority());
+        assertSame(first, second, "Because the second request is answered from the verified-token cache.");
+        assertEquals(1L, metricsRegistry.snapshot().get("jwtVerifiedCache").get("hits"));
+    }
+
+    @Test
+    public void resolveAuthentication_shouldReturnEmpty_forTamperedToken()
+    {
+        // arrange
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken("user", "",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))), false);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // act
+        Optional<Authentication> actual = tokenProvider.resolveAuthentication(tampered);
+
+        // assert
+        assertTrue(actual.isEmpty(), "Because the signature no longer matches.");
+    }
+
+    @Test
+    public void resolveAuthentication_shouldCarryTheUserId_fromTheToken()
+    {
+        // arrange
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        AuthenticatedUser loggedIn = new AuthenticatedUser(42, "user", "", authorities);
+        String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken(loggedIn, "", authorities), false);
+
+        // act
+        Authentication actual = tokenProvider.resolveAuthentication(token).orElseThrow();
+
+        // assert
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, actual.getPrincipal());
+        assertEquals(42, principal.getUserId(), "Because the user id travels in the uid claim.");
+        assertEquals("user", principal.getUsername());
+    }
+}